@@ -0,0 +1,219 @@
+package com.example.customer.service;
+
+import com.example.customer.dto.CustomerLookupResponse;
+import com.example.customer.dto.CustomerRequest;
+import com.example.customer.dto.CustomerResponse;
+import com.example.customer.entity.Customer;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+// Streams a bulk customer payload, JSON or fixed-width records, through CustomerService a chunk at a time.
+// Only one chunk of requests is held in memory, whatever the size of the payload.
+@Service
+public class CustomerBulkService {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${customer.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    // Ids per IN query; kept under the 1000-element IN-list limit some databases impose
+    @Value("${customer.multi-get.chunk-size:500}")
+    private int lookupChunkSize;
+
+    public record BulkResult(long items, long processed, long failed, long chunks) {
+    }
+
+    // Accepts NDJSON or a single JSON array and writes one NDJSON CustomerResponse line per item
+    public BulkResult process(InputStream in, OutputStream out) throws IOException {
+        ObjectWriter lineWriter = objectMapper.writerFor(CustomerResponse.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        long items = 0;
+        long processed = 0;
+        long failed = 0;
+        long chunks = 0;
+        List<CustomerRequest> chunk = new ArrayList<>(chunkSize);
+        // readValues pulls one value at a time and unwraps a top-level array, so both formats stream
+        try (MappingIterator<CustomerRequest> requests = objectMapper.readerFor(CustomerRequest.class).readValues(in)) {
+            while (true) {
+                CustomerRequest next = null;
+                String error = null;
+                try {
+                    if (requests.hasNextValue()) {
+                        next = requests.nextValue();
+                    }
+                } catch (JsonProcessingException e) {
+                    error = "Malformed item " + (items + chunk.size() + 1) + ": " + e.getOriginalMessage();
+                }
+                if (next != null) {
+                    chunk.add(next);
+                    if (chunk.size() < chunkSize) {
+                        continue;
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    long ok = flushChunk(chunk, lineWriter, out);
+                    items += chunk.size();
+                    processed += ok;
+                    failed += chunk.size() - ok;
+                    chunks++;
+                    chunk.clear();
+                }
+                if (error != null) {
+                    // Earlier chunks stay committed; the client learns where the payload broke
+                    writeError(out, error);
+                    break;
+                }
+                if (next == null) {
+                    break;
+                }
+            }
+        }
+        out.flush();
+        return new BulkResult(items, processed, failed, chunks);
+    }
+
+    // Concatenated CUSTOMER-RECORDs, read one chunk at a time into a reused buffer and upserted into CUSTOMER with
+    // every field, one JDBC batch and transaction per chunk; no JSON either way. Records failing
+    // VALIDATE-CUSTOMER-DATA, a truncated trailing record and the records of a chunk that failed for any reason
+    // (refused by the database, shed by the bulkhead) are counted as failed, and the stream carries on, so the
+    // client always gets the summary. Earlier chunks stay committed.
+    public BulkResult processRecords(InputStream in) throws IOException {
+        byte[] buffer = new byte[chunkSize * CustomerRecordCodec.RECORD_LENGTH];
+        int[] offsets = new int[chunkSize];
+        long items = 0;
+        long processed = 0;
+        long failed = 0;
+        long chunks = 0;
+        while (true) {
+            int length = in.readNBytes(buffer, 0, buffer.length);
+            int end = length - length % CustomerRecordCodec.RECORD_LENGTH;
+            int count = 0;
+            for (int offset = 0; offset < end; offset += CustomerRecordCodec.RECORD_LENGTH) {
+                items++;
+                if (CustomerRecordCodec.validate(buffer, offset) != null) {
+                    failed++;
+                    continue;
+                }
+                offsets[count++] = offset;
+            }
+            if (count > 0) {
+                try {
+                    processed += customerService.loadRecords(buffer, offsets, count);
+                } catch (RuntimeException e) {
+                    failed += count;
+                }
+                chunks++;
+            }
+            if (end < length) {
+                items++;
+                failed++;
+            }
+            if (length < buffer.length) {
+                return new BulkResult(items, processed, failed, chunks);
+            }
+        }
+    }
+
+    // The customers found for the ids, in request order with duplicates dropped; ids with no customer are left
+    // out. Each chunk is served from the cache first and the rest read with a single IN query. The first chunk is
+    // read here, before the caller sends a status, so a shed or failed first query is still a 503 or 500; the rest
+    // are read as Lookup.writeTo streams the array, so only one chunk is held at a time.
+    public Lookup lookup(List<Long> ids) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        return new Lookup(distinct, findChunk(distinct, 0));
+    }
+
+    public final class Lookup {
+        private final List<Long> ids;
+        private final List<CustomerLookupResponse> first;
+
+        private Lookup(List<Long> ids, List<CustomerLookupResponse> first) {
+            this.ids = ids;
+            this.first = first;
+        }
+
+        // A chunk that fails after the status was sent leaves the array unclosed and the exception aborts the
+        // response, so the client never takes a cut-short array for the whole answer
+        public void writeTo(OutputStream out) throws IOException {
+            ObjectWriter itemWriter = objectMapper.writerFor(CustomerLookupResponse.class);
+            JsonGenerator json = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            json.writeStartArray();
+            List<CustomerLookupResponse> chunk = first;
+            for (int from = 0; from < ids.size(); from += lookupChunkSize) {
+                if (from > 0) {
+                    chunk = findChunk(ids, from);
+                }
+                for (CustomerLookupResponse customer : chunk) {
+                    itemWriter.writeValue(json, customer);
+                }
+                json.flush();
+            }
+            json.writeEndArray();
+            json.close();
+        }
+    }
+
+    private List<CustomerLookupResponse> findChunk(List<Long> ids, int from) {
+        List<CustomerLookupResponse> found = new ArrayList<>();
+        if (from < ids.size()) {
+            for (Customer customer : customerService.findCustomers(
+                    ids.subList(from, Math.min(ids.size(), from + lookupChunkSize)))) {
+                found.add(toLookupResponse(customer));
+            }
+        }
+        return found;
+    }
+
+    private static CustomerLookupResponse toLookupResponse(Customer customer) {
+        CustomerLookupResponse response = new CustomerLookupResponse();
+        response.setCustomerId(customer.getId());
+        response.setName(customer.getName());
+        response.setEmail(customer.getEmail());
+        response.setAccountType(customer.getAccountType());
+        response.setBalance(customer.getBalance());
+        response.setCreditLimit(customer.getCreditLimit());
+        response.setStatus(customer.getStatus());
+        return response;
+    }
+
+    private long flushChunk(List<CustomerRequest> chunk, ObjectWriter lineWriter, OutputStream out) throws IOException {
+        long ok = 0;
+        for (CustomerResponse response : customerService.processCustomers(chunk)) {
+            lineWriter.writeValue(out, response);
+            out.write('\n');
+            if ("Processed".equals(response.getStatus())) {
+                ok++;
+            }
+        }
+        out.flush();
+        return ok;
+    }
+
+    private void writeError(OutputStream out, String message) throws IOException {
+        objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValue(out, Map.of("error", message));
+        out.write('\n');
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.customer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.common.Bulkhead;
+import com.example.customer.dto.CustomerLookupResponse;
+import com.example.customer.entity.Customer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class CustomerBulkServiceTest {
+
+    private final List<List<Long>> queried = new ArrayList<>();
+    private Long failOn;
+    private int loadedChunks;
+    private int failChunk;
+
+    // Every id below 1000 exists; failOn makes the chunk holding that id fail like a shed or refused query
+    private final CustomerService customerService = new CustomerService(null, 1, Duration.ZERO, 1, Duration.ZERO, 1,
+            Duration.ZERO) {
+        @Override
+        public List<Customer> findCustomers(List<Long> ids) {
+            queried.add(List.copyOf(ids));
+            if (failOn != null && ids.contains(failOn)) {
+                throw new Bulkhead.BulkheadFullException("customer");
+            }
+            List<Customer> found = new ArrayList<>();
+            for (Long id : ids) {
+                if (id < 1000) {
+                    Customer customer = new Customer();
+                    customer.setId(id);
+                    found.add(customer);
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public int loadRecords(byte[] buffer, int[] offsets, int count) {
+            loadedChunks++;
+            if (loadedChunks == failChunk) {
+                throw new Bulkhead.BulkheadFullException("customer");
+            }
+            return count;
+        }
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CustomerBulkService bulkService = new CustomerBulkService();
+
+    CustomerBulkServiceTest() {
+        ReflectionTestUtils.setField(bulkService, "customerService", customerService);
+        ReflectionTestUtils.setField(bulkService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(bulkService, "lookupChunkSize", 2);
+        ReflectionTestUtils.setField(bulkService, "chunkSize", 3);
+    }
+
+    @AfterEach
+    void shutdown() {
+        customerService.shutdown();
+    }
+
+    @Test
+    void streamsCustomersInRequestOrderWithoutDuplicatesOrUnknownIds() throws Exception {
+        CustomerBulkService.Lookup lookup = bulkService.lookup(List.of(5L, 3L, 5L, 2000L, 1L, 3L, 7L));
+        // Only the first chunk is read before the body is written
+        assertEquals(List.of(List.of(5L, 3L)), queried);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        lookup.writeTo(out);
+
+        assertEquals(List.of(5L, 3L, 1L, 7L), ids(out));
+        assertEquals(List.of(List.of(5L, 3L), List.of(2000L, 1L), List.of(7L)), queried);
+    }
+
+    @Test
+    void failureInTheFirstChunkFailsBeforeAnythingIsWritten() {
+        failOn = 2L;
+
+        assertThrows(Bulkhead.BulkheadFullException.class, () -> bulkService.lookup(List.of(1L, 2L, 3L)));
+        assertEquals(1, queried.size());
+    }
+
+    @Test
+    void failureInALaterChunkLeavesTheArrayUnclosed() throws Exception {
+        failOn = 7L;
+        CustomerBulkService.Lookup lookup = bulkService.lookup(List.of(1L, 2L, 3L, 4L, 7L));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThrows(Bulkhead.BulkheadFullException.class, () -> lookup.writeTo(out));
+
+        assertEquals(3, queried.size());
+        String body = out.toString(StandardCharsets.UTF_8);
+        assertTrue(body.startsWith("[{\"customerId\":1"), body);
+        assertFalse(body.endsWith("]"), body);
+        assertThrows(JsonProcessingException.class, () -> objectMapper.readTree(body));
+    }
+
+    @Test
+    void emptyRequestQueriesNothing() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bulkService.lookup(List.of()).writeTo(out);
+
+        assertEquals("[]", out.toString(StandardCharsets.UTF_8));
+        assertEquals(List.of(), queried);
+    }
+
+    @Test
+    void shedRecordChunkIsCountedAsFailedAndTheRestStillLoad() throws Exception {
+        failChunk = 2;
+        StringBuilder records = new StringBuilder();
+        for (int i = 1; i <= 8; i++) {
+            records.append(String.format("%08d%-30s%c%09d%09d%c", i, "CUSTOMER " + i, 'C', 50_000, 0, 'A'));
+        }
+        // Invalid account type, and a truncated trailing record
+        records.append(String.format("%08d%-30s%c%09d%09d%c", 9, "CUSTOMER 9", 'X', 50_000, 0, 'A'));
+        records.append("00000010");
+
+        CustomerBulkService.BulkResult result = bulkService.processRecords(
+                new ByteArrayInputStream(records.toString().getBytes(StandardCharsets.ISO_8859_1)));
+
+        assertEquals(new CustomerBulkService.BulkResult(10, 5, 5, 3), result);
+    }
+
+    private List<Long> ids(ByteArrayOutputStream out) throws IOException {
+        List<Long> ids = new ArrayList<>();
+        for (CustomerLookupResponse customer : objectMapper.readValue(out.toByteArray(),
+                new TypeReference<List<CustomerLookupResponse>>() {
+                })) {
+            ids.add(customer.getCustomerId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.customer.cache;
+
+import com.example.customer.entity.Customer;
+import com.example.customer.repository.CustomerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+// Read-through cache in front of CustomerRepository for the skewed customer lookup traffic.
+// Entries are detached copies, never the managed entity a loader returned, and every caller gets its own copy,
+// so neither a persistence context nor a caller changing its result can alter what others are served.
+// Writers do not go through the cache. Inserts need nothing, since a miss is never cached and a new id was never
+// served: the testetl CustomerService and CustomerBulkLoader only insert rows under fresh sequence ids. An update
+// must invalidate its ids once it commits, as CustomerService.loadRecords does; one that does not is served stale
+// for up to customer.cache.ttl.
+@Component
+@ManagedResource(objectName = "com.example.customer:type=Cache,name=customer")
+public class CustomerCache {
+
+    private final CustomerRepository customerRepository;
+    private final TinyLfuCache<Long, Customer> cache;
+
+    @Autowired
+    public CustomerCache(CustomerRepository customerRepository,
+                         @Value("${customer.cache.maximum-size:10000}") int maximumSize,
+                         @Value("${customer.cache.ttl:PT5M}") Duration ttl) {
+        this.customerRepository = customerRepository;
+        this.cache = new TinyLfuCache<>(maximumSize, ttl.toNanos());
+    }
+
+    public Optional<Customer> findById(Long id) {
+        return findById(id, key -> customerRepository.findById(key).orElse(null));
+    }
+
+    // Lets the caller decorate the miss path, e.g. to collapse concurrent loads of the same id
+    public Optional<Customer> findById(Long id, Function<Long, Customer> loader) {
+        return Optional.ofNullable(copy(cache.get(id, key -> copy(loader.apply(key)))));
+    }
+
+    // Cached entries are served as they are; the misses go to the loader in one call and are cached
+    public Map<Long, Customer> findAllById(List<Long> ids, Function<List<Long>, List<Customer>> loader) {
+        Map<Long, Customer> found = new HashMap<>(ids.size() * 4 / 3 + 1);
+        List<Long> misses = new ArrayList<>();
+        long stamp = cache.generation();
+        for (Long id : ids) {
+            Customer customer = cache.getIfPresent(id);
+            if (customer != null) {
+                found.put(id, copy(customer));
+            } else {
+                misses.add(id);
+            }
+        }
+        if (!misses.isEmpty()) {
+            for (Customer customer : loader.apply(misses)) {
+                Customer detached = copy(customer);
+                cache.putIfNotInvalidated(detached.getId(), detached, stamp);
+                found.put(detached.getId(), copy(detached));
+            }
+        }
+        return found;
+    }
+
+    @ManagedOperation
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    @ManagedOperation
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public TinyLfuCache.Stats stats() {
+        return cache.stats();
+    }
+
+    @ManagedAttribute
+    public long getHits() {
+        return cache.stats().hits();
+    }
+
+    @ManagedAttribute
+    public long getMisses() {
+        return cache.stats().misses();
+    }
+
+    @ManagedAttribute
+    public double getHitRate() {
+        return cache.stats().hitRate();
+    }
+
+    @ManagedAttribute
+    public long getEvictions() {
+        return cache.stats().evictions();
+    }
+
+    @ManagedAttribute
+    public int getSize() {
+        return cache.stats().size();
+    }
+
+    private static Customer copy(Customer customer) {
+        if (customer == null) {
+            return null;
+        }
+        Customer copy = new Customer();
+        copy.setId(customer.getId());
+        copy.setName(customer.getName());
+        copy.setEmail(customer.getEmail());
+        copy.setAccountType(customer.getAccountType());
+        copy.setBalance(customer.getBalance());
+        copy.setCreditLimit(customer.getCreditLimit());
+        copy.setStatus(customer.getStatus());
+        return copy;
+    }
+}
@@ -2,17 +2,28 @@ package com.example.customer.controller;
 
 import com.example.customer.dto.CustomerRequest;
 import com.example.customer.dto.CustomerResponse;
+import com.example.customer.service.CustomerBulkService;
+import com.example.customer.service.CustomerBulkService.BulkResult;
 import com.example.customer.service.CustomerService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.constraints.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/customers")
@@ -22,9 +33,44 @@ public class CustomerController {
     @Autowired
     private CustomerService customerService;
 
+    @Autowired
+    private CustomerBulkService customerBulkService;
+
+    @Value("${customer.multi-get.max-ids:5000}")
+    private int maxLookupIds;
+
+    // Completes once the micro-batch holding this request has committed
     @PostMapping
-    public ResponseEntity<CustomerResponse> processCustomer(@Valid @RequestBody CustomerRequest request) {
-        CustomerResponse response = customerService.processCustomer(request);
-        return new ResponseEntity<>(response, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<CustomerResponse>> processCustomer(@Valid @RequestBody CustomerRequest request) {
+        return customerService.submitCustomer(request)
+                .thenApply(response -> new ResponseEntity<>(response, HttpStatus.OK));
+    }
+
+    // NDJSON or a JSON array of CustomerRequest in; one NDJSON CustomerResponse per item out, as chunks commit
+    @PostMapping(path = "/bulk", consumes = {"application/x-ndjson", MediaType.APPLICATION_JSON_VALUE},
+            produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> processCustomers(HttpServletRequest request) {
+        StreamingResponseBody body = out -> customerBulkService.process(request.getInputStream(), out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    // JSON array of CUST-IDs in; a JSON array of the customers that exist out, written a chunk at a time. The first
+    // chunk is read before the status is sent, so a shed or failed query there is a 503 or 500; a later one aborts
+    // the response with the array left unclosed.
+    @PostMapping(path = "/lookup", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> findCustomers(@RequestBody List<@NotNull Long> ids) {
+        if (ids.size() > maxLookupIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxLookupIds + " customer ids per lookup");
+        }
+        CustomerBulkService.Lookup lookup = customerBulkService.lookup(ids);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(lookup::writeTo);
+    }
+
+    // Concatenated fixed-width CUSTOMER-RECORDs, as upstream systems already write them, upserted into CUSTOMER
+    @PostMapping(path = "/records", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<BulkResult> processCustomerRecords(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(customerBulkService.processRecords(request.getInputStream()));
     }
-}
\ No newline at end of file
+}
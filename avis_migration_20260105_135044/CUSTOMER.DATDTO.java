@@ -2,6 +2,8 @@ package com.example.customer.dto;
 
 import jakarta.validation.constraints.NotNull;
 
+import java.math.BigDecimal;
+
 public class CustomerRequest {
 
     @NotNull
@@ -37,6 +39,76 @@ public class CustomerResponse {
         return status;
     }
 
+    public void setStatus(String status) {
+        this.status = status;
+    }
+}
+
+// One customer found by POST /api/customers/lookup; the entity itself never leaves the service
+public class CustomerLookupResponse {
+
+    private Long customerId;
+    private String name;
+    private String email;
+    private String accountType;
+    private BigDecimal balance;
+    private BigDecimal creditLimit;
+    private String status;
+
+    // Getters and setters
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Long customerId) {
+        this.customerId = customerId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getAccountType() {
+        return accountType;
+    }
+
+    public void setAccountType(String accountType) {
+        this.accountType = accountType;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public BigDecimal getCreditLimit() {
+        return creditLimit;
+    }
+
+    public void setCreditLimit(BigDecimal creditLimit) {
+        this.creditLimit = creditLimit;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
     public void setStatus(String status) {
         this.status = status;
     }
@@ -5,14 +5,18 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
+import java.math.BigDecimal;
+
 @Entity
 @Table(name = "CUSTOMER")
 public class Customer {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_seq")
+    @SequenceGenerator(name = "customer_seq", sequenceName = "CUSTOMER_SEQ", allocationSize = 50)
     @Column(name = "CUSTOMER_ID")
     private Long id;
 
@@ -22,6 +26,19 @@ public class Customer {
     @Column(name = "EMAIL")
     private String email;
 
+    // CUST-ACCOUNT-TYPE, CUST-BALANCE, CUST-CREDIT-LIMIT and CUST-STATUS, as loaded from CUSTOMER-RECORDs
+    @Column(name = "ACCOUNT_TYPE")
+    private String accountType;
+
+    @Column(name = "BALANCE")
+    private BigDecimal balance;
+
+    @Column(name = "CREDIT_LIMIT")
+    private BigDecimal creditLimit;
+
+    @Column(name = "STATUS")
+    private String status;
+
     // Getters and setters
 
     public Long getId() {
@@ -47,4 +64,36 @@ public class Customer {
     public void setEmail(String email) {
         this.email = email;
     }
-}
\ No newline at end of file
+
+    public String getAccountType() {
+        return accountType;
+    }
+
+    public void setAccountType(String accountType) {
+        this.accountType = accountType;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public BigDecimal getCreditLimit() {
+        return creditLimit;
+    }
+
+    public void setCreditLimit(BigDecimal creditLimit) {
+        this.creditLimit = creditLimit;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.customer.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.customer.ProcessCustomer")
+@Label("Process Customer")
+@Category({"ETL", "REST"})
+@Enabled(false)
+@StackTrace(false)
+public class CustomerRequestEvent extends Event {
+
+    @Label("Customer Id")
+    public long customerId;
+
+    @Label("Records")
+    public int records;
+
+    @Label("Status")
+    public String status;
+}
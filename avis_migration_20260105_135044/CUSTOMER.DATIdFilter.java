@@ -0,0 +1,204 @@
+package com.example.customer.cache;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bloom filter of every CUSTOMER_ID, so lookups of ids that do not exist are answered without a query.
+// Rebuilt from the table on a fixed interval and fed each new id in between by every writer of CUSTOMER
+// (CustomerService.loadRecords and both testetl paths), before the row is committed.
+// Until the first build finishes every id "might" exist, so nothing is ever wrongly rejected.
+@Component
+@ManagedResource(objectName = "com.example.customer:type=IdFilter,name=customer")
+public class CustomerIdFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerIdFilter.class);
+
+    private static final String SELECT_IDS = "SELECT CUSTOMER_ID FROM CUSTOMER";
+    private static final String COUNT_IDS = "SELECT COUNT(*) FROM CUSTOMER";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double falsePositiveRate;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Bits current;
+    private volatile Bits building;
+    // Ids added since the previous rebuild started; replayed into the next filter, since the table scan
+    // may not see rows whose transaction had not committed when it ran
+    private volatile Set<Long> recentAdds = ConcurrentHashMap.newKeySet();
+    private final LongAdder rejected = new LongAdder();
+    private volatile Instant lastBuilt;
+    private volatile String lastFailure;
+    private final LongAdder failedBuilds = new LongAdder();
+
+    @Autowired
+    public CustomerIdFilter(JdbcTemplate jdbcTemplate,
+                            @Value("${customer.id-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                            @Value("${customer.id-filter.rebuild-interval:PT15M}") Duration rebuildInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.falsePositiveRate = falsePositiveRate;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "customer-id-filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebuildQuietly, 0, rebuildInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    // false only when the id is certainly not in CUSTOMER
+    public boolean mightContain(long id) {
+        Bits bits = current;
+        if (bits == null || bits.mightContain(id)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void add(long id) {
+        recentAdds.add(id);
+        Bits bits = current;
+        if (bits != null) {
+            bits.add(id);
+        }
+        Bits next = building;
+        if (next != null) {
+            next.add(id);
+        }
+    }
+
+    // Runs on the filter's own thread, so a manual rebuild never overlaps a scheduled one
+    @ManagedOperation
+    public void rebuild() {
+        scheduler.execute(this::rebuildQuietly);
+    }
+
+    private void build() {
+        Set<Long> previousAdds = recentAdds;
+        recentAdds = ConcurrentHashMap.newKeySet();
+        Long rows = jdbcTemplate.queryForObject(COUNT_IDS, Long.class);
+        // Head room for the ids saved before the next rebuild
+        Bits next = new Bits(Math.max(1024, (rows == null ? 0 : rows) * 2), falsePositiveRate);
+        building = next;
+        try {
+            jdbcTemplate.query(SELECT_IDS, resultSet -> {
+                next.add(resultSet.getLong(1));
+            });
+            previousAdds.forEach(next::add);
+            recentAdds.forEach(next::add);
+            current = next;
+            lastBuilt = Instant.now();
+        } finally {
+            building = null;
+        }
+    }
+
+    private void rebuildQuietly() {
+        try {
+            build();
+        } catch (RuntimeException e) {
+            // Keep serving the previous filter; the next scheduled run tries again
+            lastFailure = Instant.now() + " " + e;
+            failedBuilds.increment();
+            log.warn("Customer id filter rebuild failed; still serving the filter built at {}", lastBuilt, e);
+        }
+    }
+
+    @ManagedAttribute
+    public boolean isReady() {
+        return current != null;
+    }
+
+    @ManagedAttribute
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    // A filter much older than the rebuild interval means rebuilds are failing; ids added since still pass
+    @ManagedAttribute
+    public String getLastBuilt() {
+        Instant built = lastBuilt;
+        return built == null ? null : built.toString();
+    }
+
+    @ManagedAttribute
+    public long getFailedBuilds() {
+        return failedBuilds.sum();
+    }
+
+    @ManagedAttribute
+    public String getLastFailure() {
+        return lastFailure;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // Fixed-size filter whose bits can be set and read concurrently without a lock
+    private static final class Bits {
+        private final AtomicLongArray words;
+        private final long bitMask;
+        private final int hashes;
+
+        Bits(long capacity, double falsePositiveRate) {
+            double optimalBits = -capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+            long numBits = Long.highestOneBit(Math.max(64L, (long) optimalBits) - 1) << 1;
+            this.words = new AtomicLongArray((int) Math.min(1L << 30, numBits >>> 6));
+            this.bitMask = (long) words.length() * 64 - 1;
+            this.hashes = Math.max(1, (int) Math.round(optimalBits / capacity * Math.log(2)));
+        }
+
+        boolean mightContain(long id) {
+            long h1 = mix(id);
+            long h2 = mix(h1) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = (h1 + i * h2) & bitMask;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long id) {
+            long h1 = mix(id);
+            long h2 = mix(h1) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = (h1 + i * h2) & bitMask;
+                long mask = 1L << bit;
+                int index = (int) (bit >>> 6);
+                long word = words.get(index);
+                while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+                    word = words.get(index);
+                }
+            }
+        }
+
+        // SplitMix64 finalizer
+        private static long mix(long x) {
+            x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+            x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+            return x ^ (x >>> 31);
+        }
+    }
+}
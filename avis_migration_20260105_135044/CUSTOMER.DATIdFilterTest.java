@@ -0,0 +1,154 @@
+package com.example.customer.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+class CustomerIdFilterTest {
+
+    private final TableStub table = new TableStub();
+    private CustomerIdFilter filter;
+
+    @AfterEach
+    void shutdown() {
+        if (filter != null) {
+            filter.shutdown();
+        }
+    }
+
+    @Test
+    void passesEveryIdUntilTheFirstBuildFinishes() throws Exception {
+        table.ids.add(1L);
+        table.scanGate = new CountDownLatch(1);
+        filter = new CustomerIdFilter(table, 0.01, Duration.ofHours(1));
+
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightContain(999_999L));
+        table.scanGate.countDown();
+        waitFor(filter::isReady);
+        assertFalse(filter.mightContain(999_999L));
+    }
+
+    @Test
+    void rejectsIdsNotInTheTable() throws Exception {
+        for (long id = 1; id <= 10_000; id++) {
+            table.ids.add(id);
+        }
+        filter = built();
+
+        for (long id = 1; id <= 10_000; id++) {
+            assertTrue(filter.mightContain(id), "false negative for " + id);
+        }
+        int passed = 0;
+        for (long id = 1_000_001; id <= 1_010_000; id++) {
+            if (filter.mightContain(id)) {
+                passed++;
+            }
+        }
+        assertTrue(passed < 300, "unknown ids passed: " + passed);
+        assertEquals(10_000L - passed, filter.getRejected());
+    }
+
+    @Test
+    void addedIdPassesBeforeTheRowIsScannedAndAfterTheNextRebuild() throws Exception {
+        table.ids.add(1L);
+        filter = built();
+        assertFalse(filter.mightContain(42L));
+
+        filter.add(42L);
+        assertTrue(filter.mightContain(42L));
+
+        // The row has still not committed when the rebuild scans the table
+        String firstBuild = filter.getLastBuilt();
+        Thread.sleep(5);
+        filter.rebuild();
+        waitFor(() -> !firstBuild.equals(filter.getLastBuilt()));
+        assertTrue(filter.mightContain(42L));
+    }
+
+    @Test
+    void failedRebuildKeepsThePreviousFilterAndIsReported() throws Exception {
+        table.ids.add(1L);
+        filter = built();
+        String firstBuild = filter.getLastBuilt();
+        assertNull(filter.getLastFailure());
+
+        table.failure = new IllegalStateException("connection refused");
+        filter.rebuild();
+        waitFor(() -> filter.getFailedBuilds() == 1);
+
+        assertEquals(firstBuild, filter.getLastBuilt());
+        assertTrue(filter.getLastFailure().contains("connection refused"), filter.getLastFailure());
+        assertTrue(filter.mightContain(1L));
+        assertFalse(filter.mightContain(999_999L));
+    }
+
+    private CustomerIdFilter built() throws InterruptedException {
+        CustomerIdFilter built = new CustomerIdFilter(table, 0.01, Duration.ofHours(1));
+        waitFor(built::isReady);
+        assertNotNull(built.getLastBuilt());
+        return built;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(1);
+        }
+    }
+
+    // CUSTOMER as far as the filter sees it: the count and a scan of CUSTOMER_ID
+    private static final class TableStub extends JdbcTemplate {
+        final List<Long> ids = new CopyOnWriteArrayList<>();
+        volatile CountDownLatch scanGate;
+        volatile RuntimeException failure;
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            if (failure != null) {
+                throw failure;
+            }
+            return requiredType.cast((long) ids.size());
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler handler) {
+            CountDownLatch gate = scanGate;
+            try {
+                if (gate != null) {
+                    gate.await();
+                }
+                for (Long id : ids) {
+                    handler.processRow(row(id));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static ResultSet row(long id) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("getLong")) {
+                            return id;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+}
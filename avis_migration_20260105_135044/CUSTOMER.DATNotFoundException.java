@@ -0,0 +1,18 @@
+package com.example.customer.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Thrown for every unknown customer id. One shared instance without a stack trace: probes for random ids
+// are common and the trace would only ever point at the same line.
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public final class CustomerNotFoundException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final CustomerNotFoundException INSTANCE = new CustomerNotFoundException();
+
+    private CustomerNotFoundException() {
+        super("Customer not found", null, false, false);
+    }
+}
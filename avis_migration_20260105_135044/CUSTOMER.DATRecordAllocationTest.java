@@ -0,0 +1,155 @@
+package com.example.customer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.customer.cache.CustomerCache;
+import com.example.customer.cache.CustomerIdFilter;
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+// Bytes allocated per record on POST /api/customers/records, from the upload stream to the values bound to the
+// upsert. The database is stubbed out: what the driver allocates is not this service's to budget.
+class CustomerRecordAllocationTest {
+
+    // Target: validating and keying a record allocates nothing, so a record may cost only the values bound to the
+    // upsert (name, account type and status strings and two BigDecimals, about 230 bytes), the boxed CUST-ID the id
+    // filter and the cache take, and the stub statement boxing its arguments (about 160 bytes). A second decode or
+    // copy of the record goes over.
+    private static final double BUDGET_BYTES_PER_RECORD = 512;
+
+    private static final int RECORDS = 20_000;
+
+    private final DatabaseStub database = new DatabaseStub();
+    private final CustomerIdFilter idFilter = new CustomerIdFilter(database, 0.01, Duration.ofHours(1));
+    private final CustomerService customerService = new CustomerService(new TransactionManagerStub(), 6,
+            Duration.ofSeconds(1), 1, Duration.ZERO, 1, Duration.ZERO);
+    private final CustomerBulkService bulkService = new CustomerBulkService();
+
+    CustomerRecordAllocationTest() {
+        ReflectionTestUtils.setField(customerService, "jdbcTemplate", database);
+        ReflectionTestUtils.setField(customerService, "customerIdFilter", idFilter);
+        ReflectionTestUtils.setField(customerService, "customerCache",
+                new CustomerCache(null, 10_000, Duration.ofMinutes(5)));
+        ReflectionTestUtils.setField(customerService, "upsertSql", "MERGE");
+        ReflectionTestUtils.setField(bulkService, "customerService", customerService);
+        ReflectionTestUtils.setField(bulkService, "chunkSize", 500);
+    }
+
+    @AfterEach
+    void shutdown() {
+        customerService.shutdown();
+        idFilter.shutdown();
+    }
+
+    @Test
+    void recordUploadStaysWithinDeclaredBudget() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        byte[] full = corpus(RECORDS);
+        byte[] prefix = Arrays.copyOf(full, full.length / 2);
+
+        // Warm passes let the JIT compile and escape-analyse the path; the least-allocating measured pass counts.
+        // Subtracting the prefix pass leaves buffers, chunk and transaction setup out of the per-record figure.
+        for (int i = 0; i < 5; i++) {
+            upload(prefix);
+            upload(full);
+        }
+        long prefixBytes = Long.MAX_VALUE;
+        long fullBytes = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            upload(prefix);
+            prefixBytes = Math.min(prefixBytes, threads.getCurrentThreadAllocatedBytes() - before);
+            before = threads.getCurrentThreadAllocatedBytes();
+            upload(full);
+            fullBytes = Math.min(fullBytes, threads.getCurrentThreadAllocatedBytes() - before);
+        }
+        double perRecord = (double) (fullBytes - prefixBytes) / (RECORDS - RECORDS / 2);
+        String report = String.format("ALLOCATION: Records=%d, PerRecord=%.1f, Budget=%.1f", RECORDS - RECORDS / 2,
+                perRecord, BUDGET_BYTES_PER_RECORD);
+        System.out.println(report);
+        assertTrue(perRecord <= BUDGET_BYTES_PER_RECORD, report);
+    }
+
+    private void upload(byte[] records) throws Exception {
+        CustomerBulkService.BulkResult result = bulkService.processRecords(new ByteArrayInputStream(records));
+        assertEquals(records.length / CustomerRecordCodec.RECORD_LENGTH, result.processed());
+        assertEquals(result.processed(), database.bound);
+        database.bound = 0;
+    }
+
+    // Valid CUSTOMER-RECORDs with distinct CUST-IDs
+    private static byte[] corpus(int records) {
+        Random random = new Random(20260105L);
+        StringBuilder text = new StringBuilder(records * CustomerRecordCodec.RECORD_LENGTH);
+        for (int i = 0; i < records; i++) {
+            text.append(String.format("%08d%-30s%c%09d%09d%c", 1 + i, "CUSTOMER " + random.nextInt(1_000_000),
+                    "CSB".charAt(random.nextInt(3)), 10_000 + random.nextInt(1_000_000), random.nextInt(1_000_000),
+                    "AIS".charAt(random.nextInt(3))));
+        }
+        return text.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    // An empty CUSTOMER for the id filter, and an upsert that binds every record and sends nothing
+    private static final class DatabaseStub extends JdbcTemplate {
+        private final PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class<?>[] {PreparedStatement.class},
+                (proxy, method, args) -> null);
+        long bound;
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            return requiredType.cast(0L);
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler handler) {
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, BatchPreparedStatementSetter setter) {
+            int count = setter.getBatchSize();
+            try {
+                for (int i = 0; i < count; i++) {
+                    setter.setValues(statement, i);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            bound += count;
+            return new int[count];
+        }
+    }
+
+    private static final class TransactionManagerStub implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
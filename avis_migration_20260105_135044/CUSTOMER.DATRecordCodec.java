@@ -0,0 +1,94 @@
+package com.example.customer.service;
+
+import java.nio.charset.StandardCharsets;
+
+// CUSTOMER-RECORD from test-etl.cbl, read in place from a byte buffer of concatenated records.
+// Fields are decoded only when asked for, so validating and keying a record allocates nothing.
+public final class CustomerRecordCodec {
+
+    public static final int RECORD_LENGTH = 58;
+
+    private static final int ID = 0;              // CUST-ID           PIC 9(8)
+    private static final int NAME = 8;            // CUST-NAME         PIC X(30)
+    private static final int ACCOUNT_TYPE = 38;   // CUST-ACCOUNT-TYPE PIC X(1)
+    private static final int BALANCE = 39;        // CUST-BALANCE      PIC 9(7)V99
+    private static final int CREDIT_LIMIT = 48;   // CUST-CREDIT-LIMIT PIC 9(7)V99
+    private static final int STATUS = 57;         // CUST-STATUS       PIC X(1)
+
+    private static final long MINIMUM_BALANCE = 10_000;
+
+    private CustomerRecordCodec() {
+    }
+
+    // -1 when the field is not all digits
+    public static long customerId(byte[] buffer, int offset) {
+        return digits(buffer, offset + ID, 8);
+    }
+
+    public static long balanceCents(byte[] buffer, int offset) {
+        return digits(buffer, offset + BALANCE, 9);
+    }
+
+    public static long creditLimitCents(byte[] buffer, int offset) {
+        return digits(buffer, offset + CREDIT_LIMIT, 9);
+    }
+
+    public static char accountType(byte[] buffer, int offset) {
+        return (char) (buffer[offset + ACCOUNT_TYPE] & 0xFF);
+    }
+
+    public static char status(byte[] buffer, int offset) {
+        return (char) (buffer[offset + STATUS] & 0xFF);
+    }
+
+    public static String name(byte[] buffer, int offset) {
+        int end = offset + NAME + 30;
+        while (end > offset + NAME && buffer[end - 1] == ' ') {
+            end--;
+        }
+        return new String(buffer, offset + NAME, end - offset - NAME, StandardCharsets.ISO_8859_1);
+    }
+
+    // VALIDATE-CUSTOMER-DATA; null when the record is valid, otherwise the WS-ERROR-TYPE text
+    public static String validate(byte[] buffer, int offset) {
+        if (customerId(buffer, offset) <= 0) {
+            return "INVALID CUSTOMER ID";
+        }
+        if (isBlank(buffer, offset + NAME, 30)) {
+            return "MISSING CUSTOMER NAME";
+        }
+        char type = accountType(buffer, offset);
+        if (type != 'C' && type != 'S' && type != 'B') {
+            return "INVALID ACCOUNT TYPE";
+        }
+        long balance = balanceCents(buffer, offset);
+        if (balance < 0 || creditLimitCents(buffer, offset) < 0) {
+            return "INVALID AMOUNT";
+        }
+        if (balance < MINIMUM_BALANCE && status(buffer, offset) == 'A') {
+            return "BALANCE BELOW MINIMUM";
+        }
+        return null;
+    }
+
+    private static long digits(byte[] buffer, int from, int length) {
+        long value = 0;
+        for (int i = from; i < from + length; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean isBlank(byte[] buffer, int from, int length) {
+        for (int i = from; i < from + length; i++) {
+            if (buffer[i] != ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -4,7 +4,13 @@ import com.example.customer.entity.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
     // Additional query methods if needed
+
+    // One IN query; callers keep the id list within the database's IN-list limit
+    List<Customer> findByIdIn(Collection<Long> ids);
 }
\ No newline at end of file
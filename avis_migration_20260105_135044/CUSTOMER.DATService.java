@@ -1,12 +1,32 @@
 package com.example.customer.service;
 
+import com.example.common.Bulkhead;
+import com.example.common.MicroBatcher;
+import com.example.common.SingleFlight;
+import com.example.customer.cache.CustomerCache;
+import com.example.customer.cache.CustomerIdFilter;
 import com.example.customer.dto.CustomerRequest;
 import com.example.customer.dto.CustomerResponse;
 import com.example.customer.entity.Customer;
+import com.example.customer.event.CustomerRequestEvent;
 import com.example.customer.repository.CustomerRepository;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class CustomerService {
@@ -14,20 +34,255 @@ public class CustomerService {
     @Autowired
     private CustomerRepository customerRepository;
 
-    @Transactional
+    @Autowired
+    private CustomerCache customerCache;
+
+    @Autowired
+    private CustomerIdFilter customerIdFilter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // CUSTOMER-RECORDs carry their own CUST-ID, so a record for an existing customer updates it. H2 syntax by default.
+    // CUST-IDs stay below 100000000 and CUSTOMER_SEQ starts above it (id-sequences.sql), so a record never takes an
+    // id that Hibernate or the bulk loader may generate.
+    @Value("${customer.records.upsert-sql:MERGE INTO CUSTOMER (CUSTOMER_ID, NAME, ACCOUNT_TYPE, BALANCE, CREDIT_LIMIT, STATUS) "
+            + "KEY (CUSTOMER_ID) VALUES (?, ?, ?, ?, ?, ?)}")
+    private String upsertSql;
+
+    // The permit is taken before the transaction starts, so a waiting request never holds a connection
+    private final Bulkhead bulkhead;
+    private final TransactionTemplate transactionTemplate;
+    private final MicroBatcher<CustomerRequest, CustomerResponse> batcher;
+    // A hot CUST-ID missing from the cache is read from the database once, however many requests want it.
+    // Only the load itself takes a bulkhead permit; the callers waiting on it hold neither a permit nor a connection.
+    private final SingleFlight<Long, Customer> customerLoads;
+
+    public CustomerService(PlatformTransactionManager transactionManager,
+                           @Value("${customer.bulkhead.max-concurrent:6}") int maxConcurrent,
+                           @Value("${customer.bulkhead.max-wait:PT0.5S}") Duration maxWait,
+                           @Value("${customer.batch.max-items:100}") int batchMaxItems,
+                           @Value("${customer.batch.window:PT0.005S}") Duration batchWindow,
+                           @Value("${customer.batch.max-in-flight:6}") int batchMaxInFlight,
+                           @Value("${customer.single-flight.timeout:PT2S}") Duration loadTimeout) {
+        this.bulkhead = new Bulkhead("customer", maxConcurrent, maxWait);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batcher = new MicroBatcher<>("customer", batchMaxItems, batchWindow, batchMaxItems * 16, batchMaxInFlight,
+                this::processBatch);
+        this.customerLoads = new SingleFlight<>("customer", loadTimeout);
+    }
+
     public CustomerResponse processCustomer(CustomerRequest request) {
-        // Business logic equivalent to PROCEDURE DIVISION
-        // Example: Fetch customer, validate, process, and respond
-        Customer customer = customerRepository.findById(request.getCustomerId())
-                .orElseThrow(() -> new RuntimeException("Customer not found"));
+        Customer customer = findCustomer(request.getCustomerId());
+        return bulkhead.call(() -> transactionTemplate.execute(status -> process(request, customer)));
+    }
+
+    // Concurrent callers share one transaction and one bulkhead permit per batch instead of one each
+    public CompletableFuture<CustomerResponse> submitCustomer(CustomerRequest request) {
+        // Unknown ids are turned away here, before they take a batch slot, a permit or a connection
+        if (!customerIdFilter.mightContain(request.getCustomerId())) {
+            return CompletableFuture.failedFuture(CustomerNotFoundException.INSTANCE);
+        }
+        return batcher.submit(request);
+    }
+
+    // Outcomes are held until the transaction commits, so no caller sees a result that could still roll back.
+    // An item failing on its own fails only its caller, exactly as processCustomer would have.
+    private void processBatch(List<CustomerRequest> requests, List<CompletableFuture<CustomerResponse>> results) {
+        Object[] outcomes = processAll(requests);
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] instanceof RuntimeException e) {
+                results.get(i).completeExceptionally(e);
+            } else {
+                results.get(i).complete((CustomerResponse) outcomes[i]);
+            }
+        }
+    }
+
+    // One transaction and one bulkhead permit per chunk; a failing item is reported in its response and the
+    // rest still commit
+    public List<CustomerResponse> processCustomers(List<CustomerRequest> requests) {
+        List<CustomerRequest> identified = new ArrayList<>(requests.size());
+        for (CustomerRequest request : requests) {
+            if (request.getCustomerId() != null) {
+                identified.add(request);
+            }
+        }
+        Object[] outcomes = identified.isEmpty() ? new Object[0] : processAll(identified);
+        List<CustomerResponse> responses = new ArrayList<>(requests.size());
+        int next = 0;
+        for (CustomerRequest request : requests) {
+            if (request.getCustomerId() == null) {
+                responses.add(failed(request, "customerId is required"));
+                continue;
+            }
+            Object outcome = outcomes[next++];
+            responses.add(outcome instanceof RuntimeException e ? failed(request, e.getMessage())
+                    : (CustomerResponse) outcome);
+        }
+        return responses;
+    }
 
-        // Perform business processing and validation
-        // ...
+    // Each request's response, or the RuntimeException it failed with. Customers are looked up first, outside
+    // any transaction; the requests then run in one transaction under one bulkhead permit. A failure that marked
+    // that transaction rollback-only (a DataAccessException from the repository) would fail the commit for
+    // everyone, so the batch is rolled back instead and every other request runs again in a transaction of its own.
+    private Object[] processAll(List<CustomerRequest> requests) {
+        Object[] outcomes = new Object[requests.size()];
+        Customer[] customers = new Customer[requests.size()];
+        List<Integer> pending = new ArrayList<>(requests.size());
+        for (int i = 0; i < outcomes.length; i++) {
+            try {
+                customers[i] = findCustomer(requests.get(i).getCustomerId());
+                pending.add(i);
+            } catch (RuntimeException e) {
+                outcomes[i] = e;
+            }
+        }
+        if (pending.isEmpty()) {
+            return outcomes;
+        }
+        int spoiled = bulkhead.call(() -> transactionTemplate.execute(status -> {
+            for (int i : pending) {
+                try {
+                    outcomes[i] = process(requests.get(i), customers[i]);
+                } catch (RuntimeException e) {
+                    outcomes[i] = e;
+                    if (status.isRollbackOnly()) {
+                        // Rolled back quietly, without the UnexpectedRollbackException a commit would throw
+                        status.setRollbackOnly();
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }));
+        if (spoiled >= 0) {
+            for (int i : pending) {
+                if (i != spoiled) {
+                    outcomes[i] = processAlone(requests.get(i), customers[i]);
+                }
+            }
+        }
+        return outcomes;
+    }
+
+    private Object processAlone(CustomerRequest request, Customer customer) {
+        try {
+            return bulkhead.call(() -> transactionTemplate.execute(status -> process(request, customer)));
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    // Upserts the CUSTOMER-RECORDs at the given buffer offsets as one JDBC batch, in one transaction under the
+    // bulkhead; fields are decoded straight into the statement. The ids reach the id filter before the batch, so
+    // no committed row is ever rejected, and cached copies are dropped once it commits.
+    public int loadRecords(byte[] buffer, int[] offsets, int count) {
+        for (int i = 0; i < count; i++) {
+            customerIdFilter.add(CustomerRecordCodec.customerId(buffer, offsets[i]));
+        }
+        bulkhead.call(() -> transactionTemplate.execute(status ->
+                jdbcTemplate.batchUpdate(upsertSql, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        int offset = offsets[i];
+                        ps.setLong(1, CustomerRecordCodec.customerId(buffer, offset));
+                        ps.setString(2, CustomerRecordCodec.name(buffer, offset));
+                        ps.setString(3, String.valueOf(CustomerRecordCodec.accountType(buffer, offset)));
+                        ps.setBigDecimal(4, BigDecimal.valueOf(CustomerRecordCodec.balanceCents(buffer, offset), 2));
+                        ps.setBigDecimal(5, BigDecimal.valueOf(CustomerRecordCodec.creditLimitCents(buffer, offset), 2));
+                        ps.setString(6, String.valueOf(CustomerRecordCodec.status(buffer, offset)));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return count;
+                    }
+                })));
+        for (int i = 0; i < count; i++) {
+            customerCache.invalidate(CustomerRecordCodec.customerId(buffer, offsets[i]));
+        }
+        return count;
+    }
+
+    // customer is null when the CUST-ID is unknown
+    private CustomerResponse process(CustomerRequest request, Customer customer) {
+        CustomerRequestEvent event = new CustomerRequestEvent();
+        event.begin();
+        String status = "Failed";
+        try {
+            // Business logic equivalent to PROCEDURE DIVISION
+            // Example: Fetch customer, validate, process, and respond
+            if (customer == null) {
+                throw CustomerNotFoundException.INSTANCE;
+            }
+
+            // Perform business processing and validation
+            // ...
+
+            // Build response
+            CustomerResponse response = new CustomerResponse();
+            response.setCustomerId(customer.getId());
+            response.setStatus("Processed");
+            status = response.getStatus();
+            return response;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.customerId = request.getCustomerId() != null ? request.getCustomerId() : 0;
+                event.records = 1;
+                event.status = status;
+                event.commit();
+            }
+        }
+    }
+
+    // Customers for the given ids in the same order, skipping unknown ids; unknown to the id filter means no query,
+    // and the cache misses that remain are read with a single IN query under the bulkhead
+    public List<Customer> findCustomers(List<Long> ids) {
+        List<Long> candidates = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (customerIdFilter.mightContain(id)) {
+                candidates.add(id);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Customer> found = customerCache.findAllById(candidates,
+                misses -> bulkhead.call(() -> customerRepository.findByIdIn(misses)));
+        List<Customer> customers = new ArrayList<>(found.size());
+        for (Long id : candidates) {
+            Customer customer = found.get(id);
+            if (customer != null) {
+                customers.add(customer);
+            }
+        }
+        return customers;
+    }
+
+    // Cache, then a single-flight load; null when the id filter or the database says there is no such customer
+    private Customer findCustomer(Long id) {
+        if (!customerIdFilter.mightContain(id)) {
+            return null;
+        }
+        return customerCache.findById(id, this::loadCustomer).orElse(null);
+    }
+
+    private Customer loadCustomer(Long id) {
+        return customerLoads.load(id, key -> bulkhead.call(() -> customerRepository.findById(key).orElse(null)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batcher.close();
+    }
 
-        // Build response
+    private static CustomerResponse failed(CustomerRequest request, String reason) {
         CustomerResponse response = new CustomerResponse();
-        response.setCustomerId(customer.getId());
-        response.setStatus("Processed");
+        response.setCustomerId(request.getCustomerId());
+        response.setStatus("Failed: " + reason);
         return response;
     }
-}
\ No newline at end of file
+}
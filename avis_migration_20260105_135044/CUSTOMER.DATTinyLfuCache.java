@@ -0,0 +1,357 @@
+package com.example.customer.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Bounded W-TinyLFU cache: a small LRU window in front of a segmented LRU main area.
+// Entries leaving the window only displace a main-area victim that the sketch says is used less often.
+// Guarded by a ReentrantLock, not a monitor, so request threads contending for it never pin a carrier.
+public class TinyLfuCache<K, V> {
+
+    private final int maximumSize;
+    private final int windowMaximum;
+    private final int protectedMaximum;
+    private final long ttlNanos;
+
+    private final Map<K, Node<K, V>> data;
+    private final AccessQueue<K, V> window = new AccessQueue<>();
+    private final AccessQueue<K, V> probation = new AccessQueue<>();
+    private final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+    private final FrequencySketch sketch;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    // Bumped by every invalidation; a load stamped before one may have read what the invalidation replaced
+    private long generation;
+
+    public record Stats(long hits, long misses, long evictions, long expirations, int size) {
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+
+    // ttlNanos of 0 disables expiry
+    public TinyLfuCache(int maximumSize, long ttlNanos) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.windowMaximum = Math.max(1, maximumSize / 100);
+        this.protectedMaximum = (int) ((maximumSize - windowMaximum) * 0.8);
+        this.ttlNanos = ttlNanos;
+        this.data = new HashMap<>(maximumSize * 4 / 3 + 1);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    public V getIfPresent(K key) {
+        lock.lock();
+        try {
+            sketch.increment(key);
+            Node<K, V> node = data.get(key);
+            if (node != null && isExpired(node, System.nanoTime())) {
+                remove(node);
+                expirations.increment();
+                node = null;
+            }
+            if (node == null) {
+                misses.increment();
+                return null;
+            }
+            onAccess(node);
+            hits.increment();
+            return node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Read-through; the loader runs outside the lock and a null result is not cached. The loaded value is
+    // returned but not cached when the key was invalidated while the loader ran, since it may be stale.
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long stamp = generation();
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        value = loader.apply(key);
+        if (value != null) {
+            putIfNotInvalidated(key, value, stamp);
+        }
+        return value;
+    }
+
+    // Take before reading the backing store, and hand to putIfNotInvalidated with what was read
+    public long generation() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Skips the put, returning false, when anything was invalidated since the stamp was taken
+    public boolean putIfNotInvalidated(K key, V value, long stamp) {
+        lock.lock();
+        try {
+            if (generation != stamp) {
+                return false;
+            }
+            put(key, value);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                node.value = value;
+                node.writeNanos = System.nanoTime();
+                onAccess(node);
+                return;
+            }
+            node = new Node<>(key, value, System.nanoTime());
+            data.put(key, node);
+            node.queue = window;
+            window.addLast(node);
+            if (window.size > windowMaximum) {
+                Node<K, V> candidate = window.pollFirst();
+                candidate.queue = probation;
+                probation.addLast(candidate);
+                if (data.size() > maximumSize) {
+                    evict(candidate);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            generation++;
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                remove(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            generation++;
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedQueue.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        int size;
+        lock.lock();
+        try {
+            size = data.size();
+        } finally {
+            lock.unlock();
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size);
+    }
+
+    // The candidate just left the window; it survives only if it is used more often than the probation victim
+    private void evict(Node<K, V> candidate) {
+        Node<K, V> victim = probation.peekFirst();
+        if (victim == candidate) {
+            victim = protectedQueue.peekFirst();
+        }
+        Node<K, V> loser = victim == null
+                || sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+        if (loser == null) {
+            loser = candidate;
+        }
+        remove(loser);
+        evictions.increment();
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.queue == probation) {
+            probation.remove(node);
+            node.queue = protectedQueue;
+            protectedQueue.addLast(node);
+            if (protectedQueue.size > protectedMaximum) {
+                Node<K, V> demoted = protectedQueue.pollFirst();
+                demoted.queue = probation;
+                probation.addLast(demoted);
+            }
+        } else {
+            node.queue.moveToLast(node);
+        }
+    }
+
+    private void remove(Node<K, V> node) {
+        data.remove(node.key);
+        node.queue.remove(node);
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return ttlNanos > 0 && now - node.writeNanos >= ttlNanos;
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        V value;
+        long writeNanos;
+        AccessQueue<K, V> queue;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, long writeNanos) {
+            this.key = key;
+            this.value = value;
+            this.writeNanos = writeNanos;
+        }
+    }
+
+    // Intrusive doubly linked list, least recently used first
+    private static final class AccessQueue<K, V> {
+        Node<K, V> head;
+        Node<K, V> tail;
+        int size;
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        Node<K, V> peekFirst() {
+            return head;
+        }
+
+        Node<K, V> pollFirst() {
+            Node<K, V> node = head;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+            size = 0;
+        }
+    }
+
+    // Count-min sketch of 4-bit counters; all counters are halved every 10 x maximumSize increments
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final long[] SEEDS = {
+            0x97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L
+        };
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            int width = Integer.highestOneBit(Math.max(16, maximumSize) * 2 - 1);
+            this.counters = new byte[DEPTH][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * maximumSize;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < DEPTH; i++) {
+                int index = indexOf(hash, i);
+                if (counters[i][index] < 15) {
+                    counters[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int frequency = 15;
+            for (int i = 0; i < DEPTH; i++) {
+                frequency = Math.min(frequency, counters[i][indexOf(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private void reset() {
+            for (byte[] row : counters) {
+                for (int j = 0; j < row.length; j++) {
+                    row[j] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+
+        private int indexOf(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            h += h >>> 32;
+            return (int) h & mask;
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45D9F3B;
+            x = ((x >>> 16) ^ x) * 0x45D9F3B;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
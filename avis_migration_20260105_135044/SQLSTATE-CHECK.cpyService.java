@@ -1,11 +1,16 @@
 package com.example.sqlstatecheck.service;
 
+import com.example.common.Bulkhead;
 import com.example.sqlstatecheck.dto.RequestDto;
 import com.example.sqlstatecheck.dto.ResponseDto;
 import com.example.sqlstatecheck.repository.SqlStateCheckRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
 
 @Service
 public class SqlStateCheckService {
@@ -13,8 +18,21 @@ public class SqlStateCheckService {
     @Autowired
     private SqlStateCheckRepository sqlStateCheckRepository;
 
-    @Transactional
+    private final Bulkhead bulkhead;
+    private final TransactionTemplate transactionTemplate;
+
+    public SqlStateCheckService(PlatformTransactionManager transactionManager,
+                                @Value("${sqlstate-check.bulkhead.max-concurrent:2}") int maxConcurrent,
+                                @Value("${sqlstate-check.bulkhead.max-wait:PT0.5S}") Duration maxWait) {
+        this.bulkhead = new Bulkhead("sqlstate-check", maxConcurrent, maxWait);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     public ResponseDto processRequest(RequestDto requestDto) {
+        return bulkhead.call(() -> transactionTemplate.execute(status -> process(requestDto)));
+    }
+
+    private ResponseDto process(RequestDto requestDto) {
         // Implement business logic equivalent to PROCEDURE DIVISION
         // Perform validation and database operations
         // Build and return response
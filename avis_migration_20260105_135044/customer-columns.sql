@@ -0,0 +1,7 @@
+-- CUSTOMER-RECORD fields kept on CUSTOMER by POST /api/customers/records (CustomerService.loadRecords).
+-- Run once against an existing schema before deploying. H2 syntax, like customer.records.upsert-sql.
+
+ALTER TABLE CUSTOMER ADD COLUMN IF NOT EXISTS ACCOUNT_TYPE CHAR(1);
+ALTER TABLE CUSTOMER ADD COLUMN IF NOT EXISTS BALANCE DECIMAL(9, 2);
+ALTER TABLE CUSTOMER ADD COLUMN IF NOT EXISTS CREDIT_LIMIT DECIMAL(9, 2);
+ALTER TABLE CUSTOMER ADD COLUMN IF NOT EXISTS STATUS CHAR(1);
@@ -0,0 +1,22 @@
+-- Id sequences for the pooled generators (allocationSize 50). Each value Hibernate or the bulk loader
+-- takes from a sequence is the top of a block of 50 ids, so every sequence must restart at least 50
+-- above the highest id already in its table.
+-- Run once against an existing schema, with the applications stopped, before deploying the sequence
+-- mappings. Each restart value is computed first, since most databases take only a literal or a
+-- variable after RESTART WITH. H2 syntax, like the default etl.load.customer-sequence-query.
+-- On PostgreSQL use
+--   SELECT setval('customer_seq', (SELECT GREATEST(COALESCE(MAX(customer_id), 0) + 50, 100000049) FROM customer), false);
+
+CREATE SEQUENCE IF NOT EXISTS CUSTOMER_SEQ START WITH 100000049 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS SAMPLE_DATA_SEQ START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS SQLSTATE_CHECK_SEQ START WITH 1 INCREMENT BY 50;
+
+-- Both CUSTOMER mappings, the bulk loader, the record upsert and the id filter use the key column CUSTOMER_ID.
+-- POST /api/customers/records writes each record's own CUST-ID, a PIC 9(8) below 100000000, so generated ids
+-- start above that: the first block is 100000000-100000049 and the two never collide.
+SET @NEXT_ID = (SELECT GREATEST(COALESCE(MAX(CUSTOMER_ID), 0) + 50, 100000049) FROM CUSTOMER);
+ALTER SEQUENCE CUSTOMER_SEQ RESTART WITH @NEXT_ID;
+SET @NEXT_ID = (SELECT COALESCE(MAX(ID), 0) + 50 FROM SAMPLE_DATA);
+ALTER SEQUENCE SAMPLE_DATA_SEQ RESTART WITH @NEXT_ID;
+SET @NEXT_ID = (SELECT COALESCE(MAX(ID), 0) + 50 FROM SQLSTATE_CHECK);
+ALTER SEQUENCE SQLSTATE_CHECK_SEQ RESTART WITH @NEXT_ID;
@@ -0,0 +1,74 @@
+package com.example.common;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Caps how many callers may use one resource (a service's share of the connection pool) at once.
+// With requests on virtual threads the request count is no longer bounded by a thread pool, so this is
+// what stops a burst from queueing on the pool; waiters park on the semaphore without holding a carrier.
+public class Bulkhead {
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public static class BulkheadFullException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public BulkheadFullException(String name) {
+            super("Bulkhead " + name + " is full");
+        }
+    }
+
+    private final String name;
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final LongAdder rejected = new LongAdder();
+
+    public Bulkhead(String name, int maxConcurrent, Duration maxWait) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    // An interrupt while waiting is not a full bulkhead: it fails the call as such, with the flag restored
+    public <T> T call(Supplier<T> work) {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for bulkhead " + name, e);
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new BulkheadFullException(name);
+        }
+        try {
+            return work.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getQueued() {
+        return permits.getQueueLength();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.common;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.jmx.export.MBeanExporter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Puts a ConcurrencyLimiter in front of each endpoint it is registered for, keyed by method and path pattern.
+// Shed requests get 503 with Retry-After before any service or JDBC work is done. Endpoints that stream their
+// response hold a permit for the whole stream, so they get a fixed limit that is never sampled instead.
+@Component
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+    private static final String LIMITER = ConcurrencyLimitInterceptor.class.getName() + ".limiter";
+
+    private final Map<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private final ObjectProvider<MBeanExporter> mbeanExporter;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int streamingLimit;
+    private final long maxWaitNanos;
+
+    public ConcurrencyLimitInterceptor(ObjectProvider<MBeanExporter> mbeanExporter,
+                                       @Value("${rest.concurrency.initial-limit:20}") int initialLimit,
+                                       @Value("${rest.concurrency.min-limit:4}") int minLimit,
+                                       @Value("${rest.concurrency.max-limit:200}") int maxLimit,
+                                       @Value("${rest.concurrency.streaming-limit:8}") int streamingLimit,
+                                       @Value("${rest.concurrency.max-wait:PT0.05S}") Duration maxWait) {
+        this.mbeanExporter = mbeanExporter;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.streamingLimit = streamingLimit;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        // An async dispatch (streaming bodies) still holds the permit taken on the original request
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        ConcurrencyLimiter limiter = limiter(request, handler);
+        ConcurrencyLimiter.Permit permit = limiter.tryAcquire(maxWaitNanos);
+        if (permit == null) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            return false;
+        }
+        request.setAttribute(LIMITER, limiter);
+        request.setAttribute(PERMIT, permit);
+        return true;
+    }
+
+    // Not called while an async request is still running, so the permit is only returned once it finishes
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        ConcurrencyLimiter.Permit permit = (ConcurrencyLimiter.Permit) request.getAttribute(PERMIT);
+        if (permit == null) {
+            return;
+        }
+        request.removeAttribute(PERMIT);
+        ConcurrencyLimiter limiter = (ConcurrencyLimiter) request.getAttribute(LIMITER);
+        limiter.release(permit, ex != null || response.getStatus() >= 500);
+    }
+
+    private ConcurrencyLimiter limiter(HttpServletRequest request, Object handler) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String key = request.getMethod() + " " + (pattern != null ? pattern : "/**");
+        return limiters.computeIfAbsent(key, k -> register(k, isStreaming(handler)));
+    }
+
+    // StreamingResponseBody, SseEmitter and other ResponseBodyEmitter results, bare or in a ResponseEntity
+    private static boolean isStreaming(Object handler) {
+        if (!(handler instanceof HandlerMethod method)) {
+            return false;
+        }
+        ResolvableType type = ResolvableType.forMethodParameter(method.getReturnType());
+        if (HttpEntity.class.isAssignableFrom(type.toClass())) {
+            type = type.getGeneric(0);
+        }
+        Class<?> body = type.toClass();
+        return StreamingResponseBody.class.isAssignableFrom(body) || ResponseBodyEmitter.class.isAssignableFrom(body);
+    }
+
+    private ConcurrencyLimiter register(String key, boolean streaming) {
+        ConcurrencyLimiter limiter = streaming ? ConcurrencyLimiter.fixed(key, streamingLimit)
+                : new ConcurrencyLimiter(key, initialLimit, minLimit, maxLimit);
+        mbeanExporter.ifAvailable(exporter -> {
+            try {
+                exporter.registerManagedResource(limiter,
+                        new ObjectName("com.example.common:type=ConcurrencyLimiter,name=" + ObjectName.quote(key)));
+            } catch (MalformedObjectNameException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        return limiter;
+    }
+}
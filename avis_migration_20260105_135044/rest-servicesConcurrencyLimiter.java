@@ -0,0 +1,174 @@
+package com.example.common;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Gradient-style adaptive concurrency limit for one endpoint.
+// The limit follows the ratio of the no-load latency (the minimum over a window of samples) to the recent
+// latency: while recent requests are close to no-load speed it grows by about sqrt(limit), and once
+// queueing inflates latency it shrinks toward the concurrency the backend can actually serve.
+// Requests over the limit wait briefly, then are rejected. A lock rather than a monitor, so a waiting
+// virtual thread unmounts instead of pinning its carrier. With minLimit equal to maxLimit the limit is fixed
+// and nothing is sampled; streaming endpoints use that, since a stream's duration is not a backend latency.
+@ManagedResource
+public class ConcurrencyLimiter {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final int BASELINE_WINDOW = 1000;
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    public record Permit(long startNanos, int inflightAtStart) {
+    }
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final boolean adaptive;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    // Written under the lock; volatile so the JMX getters can read them without it
+    private volatile double limit;
+    private volatile int inflight;
+    private volatile int waiting;
+    private volatile double shortRttNanos;
+    private volatile long baselineRttNanos;
+    private long windowMinRttNanos = Long.MAX_VALUE;
+    private int windowSamples;
+
+    private volatile long accepted;
+    private volatile long rejected;
+    private volatile long dropped;
+
+    public ConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.adaptive = minLimit < maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public static ConcurrencyLimiter fixed(String name, int limit) {
+        return new ConcurrencyLimiter(name, limit, limit, limit);
+    }
+
+    // null when the request should be shed; waits at most maxWaitNanos for a slot, and never queues
+    // more callers than the current limit
+    public Permit tryAcquire(long maxWaitNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            if (inflight >= (int) limit) {
+                if (maxWaitNanos <= 0 || waiting >= (int) limit) {
+                    rejected++;
+                    return null;
+                }
+                long remaining = maxWaitNanos;
+                waiting++;
+                try {
+                    while (inflight >= (int) limit) {
+                        if (remaining <= 0) {
+                            rejected++;
+                            return null;
+                        }
+                        remaining = released.awaitNanos(remaining);
+                    }
+                } finally {
+                    waiting--;
+                }
+            }
+            inflight++;
+            accepted++;
+            return new Permit(System.nanoTime(), inflight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A dropped request (server error or exception) backs the limit off instead of feeding the latency estimate
+    public void release(Permit permit, boolean failed) {
+        lock.lock();
+        try {
+            inflight--;
+            if (failed) {
+                dropped++;
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            } else if (adaptive) {
+                onSample(System.nanoTime() - permit.startNanos(), permit.inflightAtStart());
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSample(long rttNanos, int inflightAtStart) {
+        shortRttNanos = shortRttNanos == 0 ? rttNanos
+                : shortRttNanos + (rttNanos - shortRttNanos) * 2 / (SHORT_WINDOW + 1);
+        // The baseline is the previous window's minimum, so it can also rise if the backend got slower for good
+        windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+        if (baselineRttNanos == 0 || rttNanos < baselineRttNanos) {
+            baselineRttNanos = rttNanos;
+        }
+        if (++windowSamples == BASELINE_WINDOW) {
+            baselineRttNanos = windowMinRttNanos;
+            windowMinRttNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+        // A mostly idle endpoint says nothing about how much more it could take
+        if (inflightAtStart < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * baselineRttNanos / shortRttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @ManagedAttribute
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    @ManagedAttribute
+    public int getInflight() {
+        return inflight;
+    }
+
+    @ManagedAttribute
+    public int getWaiting() {
+        return waiting;
+    }
+
+    @ManagedAttribute
+    public long getAccepted() {
+        return accepted;
+    }
+
+    @ManagedAttribute
+    public long getRejected() {
+        return rejected;
+    }
+
+    @ManagedAttribute
+    public long getDropped() {
+        return dropped;
+    }
+
+    @ManagedAttribute
+    public double getShortRttMillis() {
+        return shortRttNanos / 1_000_000;
+    }
+
+    @ManagedAttribute
+    public double getBaselineRttMillis() {
+        return baselineRttNanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.common;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimiterTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    void shedsRequestsOverTheLimitWhenNotAllowedToWait() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 2, 1, 10);
+
+        assertNotNull(limiter.tryAcquire(0));
+        assertNotNull(limiter.tryAcquire(0));
+        assertNull(limiter.tryAcquire(0));
+        assertEquals(2, limiter.getInflight());
+        assertEquals(1L, limiter.getRejected());
+    }
+
+    @Test
+    void waiterTakesTheReleasedSlot() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 1, 1, 10);
+        ConcurrencyLimiter.Permit held = limiter.tryAcquire(0);
+
+        CompletableFuture<ConcurrencyLimiter.Permit> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.tryAcquire(TimeUnit.SECONDS.toNanos(5));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (limiter.getWaiting() == 0) {
+            Thread.sleep(1);
+        }
+        limiter.release(held, false);
+
+        assertNotNull(waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(1, limiter.getInflight());
+    }
+
+    @Test
+    void failedRequestBacksTheLimitOff() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 10, 1, 100);
+
+        limiter.release(limiter.tryAcquire(0), true);
+
+        assertEquals(9, limiter.getLimit());
+        assertEquals(1L, limiter.getDropped());
+    }
+
+    @Test
+    void limitGrowsAtNoLoadLatencyAndShrinksWhenLatencyInflates() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 10, 1, 100);
+
+        for (int i = 0; i < 50; i++) {
+            sample(limiter, 1 * MILLIS);
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 10, "limit after fast samples: " + grown);
+
+        for (int i = 0; i < 50; i++) {
+            sample(limiter, 20 * MILLIS);
+        }
+        int shrunk = limiter.getLimit();
+        assertTrue(shrunk < grown, "limit after slow samples: " + shrunk + ", was " + grown);
+    }
+
+    @Test
+    void fixedLimiterTakesNoSamples() throws Exception {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.fixed("stream", 8);
+
+        for (int i = 0; i < 50; i++) {
+            sample(limiter, 1000 * MILLIS);
+        }
+
+        assertEquals(8, limiter.getLimit());
+        assertEquals(0.0, limiter.getShortRttMillis());
+        assertEquals(0.0, limiter.getBaselineRttMillis());
+    }
+
+    // A request that started rttNanos ago with the endpoint at its limit
+    private static void sample(ConcurrencyLimiter limiter, long rttNanos) throws InterruptedException {
+        assertNotNull(limiter.tryAcquire(0));
+        limiter.release(new ConcurrencyLimiter.Permit(System.nanoTime() - rttNanos, limiter.getLimit()), false);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.common;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Coalesces concurrent single-item calls into batches. A batch closes `window` after its first item
+// arrives or as soon as it holds maxItems, whichever comes first, and is handed to the handler on its
+// own virtual thread while the next batch collects. Each caller gets its own future back.
+// At most maxInFlight batches run at once; the next batch starts collecting only when one of them is done,
+// so a slow handler backs callers up into the bounded queue, where the overflow is refused.
+public class MicroBatcher<I, O> implements AutoCloseable {
+
+    // Completes results.get(i) for items.get(i); futures still open when it returns or throws are failed
+    public interface BatchHandler<I, O> {
+        void handle(List<I> items, List<CompletableFuture<O>> results);
+    }
+
+    private record Pending<I, O>(I item, CompletableFuture<O> result) {
+    }
+
+    private final String name;
+    private final int maxItems;
+    private final long windowNanos;
+    private final BatchHandler<I, O> handler;
+    private final BlockingQueue<Pending<I, O>> queue;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore inFlight;
+    private final Thread collector;
+    private volatile boolean running = true;
+
+    public MicroBatcher(String name, int maxItems, Duration window, int queueCapacity, int maxInFlight,
+                        BatchHandler<I, O> handler) {
+        this.name = name;
+        this.maxItems = maxItems;
+        this.windowNanos = window.toNanos();
+        this.handler = handler;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.collector = Thread.ofPlatform().daemon().name(name + "-batcher").start(this::collect);
+    }
+
+    public CompletableFuture<O> submit(I item) {
+        CompletableFuture<O> result = new CompletableFuture<>();
+        if (!running || !queue.offer(new Pending<>(item, result))) {
+            result.completeExceptionally(new Bulkhead.BulkheadFullException(name));
+        }
+        return result;
+    }
+
+    private void collect() {
+        while (running) {
+            List<Pending<I, O>> batch = new ArrayList<>(maxItems);
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxItems) {
+                    queue.drainTo(batch, maxItems - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() == maxItems || remaining <= 0) {
+                        break;
+                    }
+                    Pending<I, O> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                inFlight.release();
+                fail(batch, new IllegalStateException(name + " batcher stopped"));
+                break;
+            }
+            executor.execute(() -> dispatch(batch));
+        }
+    }
+
+    private void dispatch(List<Pending<I, O>> batch) {
+        List<I> items = new ArrayList<>(batch.size());
+        List<CompletableFuture<O>> results = new ArrayList<>(batch.size());
+        for (Pending<I, O> pending : batch) {
+            items.add(pending.item());
+            results.add(pending.result());
+        }
+        try {
+            handler.handle(items, results);
+            fail(batch, new IllegalStateException(name + " batch left a result incomplete"));
+        } catch (RuntimeException e) {
+            fail(batch, e);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private static <I, O> void fail(List<Pending<I, O>> batch, Throwable cause) {
+        for (Pending<I, O> pending : batch) {
+            pending.result().completeExceptionally(cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        collector.interrupt();
+        List<Pending<I, O>> left = new ArrayList<>();
+        queue.drainTo(left);
+        fail(left, new IllegalStateException(name + " batcher stopped"));
+        executor.close();
+    }
+}
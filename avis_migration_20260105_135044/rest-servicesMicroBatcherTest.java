@@ -0,0 +1,116 @@
+package com.example.common;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class MicroBatcherTest {
+
+    @Test
+    void coalescesConcurrentCallsAndAnswersEachCaller() throws Exception {
+        List<Integer> batchSizes = new ArrayList<>();
+        try (MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>("test", 100, Duration.ofMillis(200), 1000, 4,
+                (items, results) -> {
+                    synchronized (batchSizes) {
+                        batchSizes.add(items.size());
+                    }
+                    for (int i = 0; i < items.size(); i++) {
+                        results.get(i).complete(items.get(i) * 2);
+                    }
+                })) {
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 250; i++) {
+                results.add(batcher.submit(i));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(Integer.valueOf(i * 2), results.get(i).get(10, TimeUnit.SECONDS));
+            }
+        }
+        synchronized (batchSizes) {
+            assertEquals(List.of(100, 100, 50), batchSizes);
+        }
+    }
+
+    @Test
+    void runsAtMostMaxInFlightBatchesAtOnce() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        try (MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>("test", 1, Duration.ZERO, 100, 2,
+                (items, results) -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    results.get(0).complete(items.get(0));
+                })) {
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                results.add(batcher.submit(i));
+            }
+            Thread.sleep(200);
+            assertEquals(2, peak.get());
+            release.countDown();
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(Integer.valueOf(i), results.get(i).get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(2, peak.get());
+        }
+    }
+
+    @Test
+    void refusesItemsOnceTheQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>("test", 1, Duration.ZERO, 2, 1,
+                (items, results) -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    results.get(0).complete(items.get(0));
+                })) {
+            CompletableFuture<Integer> running = batcher.submit(0);
+            Thread.sleep(100);
+            CompletableFuture<Integer> queued1 = batcher.submit(1);
+            CompletableFuture<Integer> queued2 = batcher.submit(2);
+            CompletableFuture<Integer> refused = batcher.submit(3);
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> refused.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(Bulkhead.BulkheadFullException.class, e.getCause());
+            release.countDown();
+            assertEquals(Integer.valueOf(0), running.get(10, TimeUnit.SECONDS));
+            assertEquals(Integer.valueOf(1), queued1.get(10, TimeUnit.SECONDS));
+            assertEquals(Integer.valueOf(2), queued2.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void handlerFailureFailsOnlyItsBatch() throws Exception {
+        try (MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>("test", 1, Duration.ZERO, 10, 1,
+                (items, results) -> {
+                    if (items.get(0) < 0) {
+                        throw new IllegalArgumentException("negative");
+                    }
+                    results.get(0).complete(items.get(0));
+                })) {
+            CompletableFuture<Integer> failed = batcher.submit(-1);
+            CompletableFuture<Integer> ok = batcher.submit(1);
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalArgumentException.class, e.getCause());
+            assertEquals(Integer.valueOf(1), ok.get(10, TimeUnit.SECONDS));
+        }
+    }
+}
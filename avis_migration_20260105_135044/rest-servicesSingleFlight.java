@@ -0,0 +1,79 @@
+package com.example.common;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+// At most one load per key at a time: the first caller runs the loader and everyone asking for the same
+// key meanwhile waits for that result. A failed load fails only the callers that shared it; the next
+// call starts a fresh load.
+public class SingleFlight<K, V> {
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public static class LoadTimeoutException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public LoadTimeoutException(String name, Object key) {
+            super("Timed out waiting for " + name + " load of " + key);
+        }
+    }
+
+    private final String name;
+    private final long timeoutNanos;
+    private final Map<K, CompletableFuture<V>> inflight = new ConcurrentHashMap<>();
+
+    public SingleFlight(String name, Duration timeout) {
+        this.name = name;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    public V load(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inflight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return await(key, existing);
+        }
+        try {
+            V value = loader.apply(key);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(key, flight);
+        }
+    }
+
+    // Waiters give up after the timeout rather than piling onto the database with their own loads
+    private V await(K key, CompletableFuture<V> flight) {
+        try {
+            return flight.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new LoadTimeoutException(name, key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoadTimeoutException(name, key);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public int getInflight() {
+        return inflight.size();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.common;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 200;
+
+    @Test
+    void concurrentCallersForOneKeyShareOneLoad() throws Exception {
+        SingleFlight<Long, String> flights = new SingleFlight<>("test", Duration.ofSeconds(5));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<CompletableFuture<String>> results = callConcurrently(() -> flights.load(7L, key -> {
+            loads.incrementAndGet();
+            await(release);
+            return "customer " + key;
+        }), flights);
+        release.countDown();
+
+        for (CompletableFuture<String> result : results) {
+            assertEquals("customer 7", result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, flights.getInflight());
+    }
+
+    @Test
+    void failedLoadFailsItsWaitersAndTheNextCallLoadsAgain() throws Exception {
+        SingleFlight<Long, String> flights = new SingleFlight<>("test", Duration.ofSeconds(5));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("database down");
+
+        List<CompletableFuture<String>> results = callConcurrently(() -> flights.load(7L, key -> {
+            loads.incrementAndGet();
+            await(release);
+            throw failure;
+        }), flights);
+        release.countDown();
+
+        for (CompletableFuture<String> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, flights.getInflight());
+        assertEquals("again", flights.load(7L, key -> "again"));
+    }
+
+    @Test
+    void waiterGivesUpAfterTheTimeoutWithoutLoading() throws Exception {
+        SingleFlight<Long, String> flights = new SingleFlight<>("test", Duration.ofMillis(50));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flights.load(7L, key -> {
+            loads.incrementAndGet();
+            await(release);
+            return "slow";
+        }));
+        while (flights.getInflight() == 0) {
+            Thread.sleep(1);
+        }
+
+        assertThrows(SingleFlight.LoadTimeoutException.class, () -> flights.load(7L, key -> {
+            loads.incrementAndGet();
+            return "own load";
+        }));
+        release.countDown();
+        assertEquals("slow", leader.get(10, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void differentKeysLoadIndependently() {
+        SingleFlight<Long, String> flights = new SingleFlight<>("test", Duration.ofSeconds(5));
+
+        assertEquals("a", flights.load(1L, key -> flights.load(2L, other -> "a")));
+    }
+
+    // Starts CALLERS calls and returns once every one is either loading or waiting on the load
+    private static List<CompletableFuture<String>> callConcurrently(Supplier<String> call, SingleFlight<Long, String> flights)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        CountDownLatch started = new CountDownLatch(CALLERS);
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> {
+                started.countDown();
+                return call.get();
+            }, executor));
+        }
+        started.await();
+        while (flights.getInflight() == 0) {
+            Thread.sleep(1);
+        }
+        // Give the last callers time to join the flight rather than start one of their own
+        Thread.sleep(100);
+        executor.shutdown();
+        return results;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
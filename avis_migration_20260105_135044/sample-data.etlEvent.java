@@ -0,0 +1,22 @@
+package com.example.sampledata.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.sampledata.ProcessRequest")
+@Label("Process Sample Data Request")
+@Category({"ETL", "REST"})
+@Enabled(false)
+@StackTrace(false)
+public class SampleDataRequestEvent extends Event {
+
+    @Label("Records")
+    public int records;
+
+    @Label("Status")
+    public String status;
+}
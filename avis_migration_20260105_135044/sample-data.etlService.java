@@ -1,11 +1,17 @@
 package com.example.sampledata.service;
 
+import com.example.common.Bulkhead;
 import com.example.sampledata.dto.SampleDataRequest;
 import com.example.sampledata.dto.SampleDataResponse;
+import com.example.sampledata.event.SampleDataRequestEvent;
 import com.example.sampledata.repository.SampleDataRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
 
 @Service
 public class SampleDataService {
@@ -13,11 +19,38 @@ public class SampleDataService {
     @Autowired
     private SampleDataRepository sampleDataRepository;
 
-    @Transactional
+    private final Bulkhead bulkhead;
+    private final TransactionTemplate transactionTemplate;
+
+    public SampleDataService(PlatformTransactionManager transactionManager,
+                             @Value("${sample-data.bulkhead.max-concurrent:2}") int maxConcurrent,
+                             @Value("${sample-data.bulkhead.max-wait:PT0.5S}") Duration maxWait) {
+        this.bulkhead = new Bulkhead("sample-data", maxConcurrent, maxWait);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     public SampleDataResponse processRequest(SampleDataRequest request) {
-        // Implement business logic equivalent to PROCEDURE DIVISION
-        // Perform validation, business processing, and database interactions
-        // Return response equivalent to IMS INSERT TO IOPCB
-        return new SampleDataResponse();
+        return bulkhead.call(() -> transactionTemplate.execute(status -> process(request)));
+    }
+
+    private SampleDataResponse process(SampleDataRequest request) {
+        SampleDataRequestEvent event = new SampleDataRequestEvent();
+        event.begin();
+        String status = "Failed";
+        try {
+            // Implement business logic equivalent to PROCEDURE DIVISION
+            // Perform validation, business processing, and database interactions
+            // Return response equivalent to IMS INSERT TO IOPCB
+            SampleDataResponse response = new SampleDataResponse();
+            status = "Processed";
+            return response;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.records = 1;
+                event.status = status;
+                event.commit();
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.example.testetl.service;
+
+import com.example.common.Bulkhead;
+import com.example.customer.cache.CustomerIdFilter;
+import com.example.testetl.entity.Customer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+
+// Loads ETL output into CUSTOMER with JDBC batch inserts, committing every chunk
+@Component
+@ManagedResource(objectName = "com.example.testetl:type=BulkLoader,name=customer")
+public class CustomerBulkLoader extends ChunkedJdbcLoader<Customer> {
+
+    private static final String INSERT_SQL = "INSERT INTO CUSTOMER (CUSTOMER_ID, NAME, ADDRESS) VALUES (?, ?, ?)";
+
+    // Parallel loads split the rows into NAME ranges
+    private static final Comparator<Customer> KEY_ORDER =
+            Comparator.comparing(Customer::getName, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    // Same block size as the @SequenceGenerator on Customer, so loader and Hibernate ids never overlap
+    private static final int ID_BLOCK_SIZE = 50;
+
+    @Autowired
+    private CustomerIdFilter customerIdFilter;
+
+    @Value("${etl.load.customer-sequence-query:SELECT NEXT VALUE FOR CUSTOMER_SEQ}")
+    private String sequenceQuery;
+
+    // This application's share of the connection pool for bulk loads, however many loads run at once
+    private final Bulkhead bulkhead;
+
+    public CustomerBulkLoader(@Value("${etl.load.bulkhead.max-concurrent:4}") int maxConcurrent,
+                              @Value("${etl.load.bulkhead.max-wait:PT30S}") Duration maxWait) {
+        super(INSERT_SQL, KEY_ORDER, ID_BLOCK_SIZE);
+        this.bulkhead = new Bulkhead("etl-load", maxConcurrent, maxWait);
+    }
+
+    @Override
+    protected long insertChunk(List<Customer> chunk) {
+        return bulkhead.call(() -> super.insertChunk(chunk));
+    }
+
+    @Override
+    protected String sequenceQuery() {
+        return sequenceQuery;
+    }
+
+    // Ids are assigned just before their chunk is inserted, so the id filter knows each row before it commits
+    @Override
+    protected void setId(Customer customer, long id) {
+        customer.setId(id);
+        customerIdFilter.add(id);
+    }
+
+    @Override
+    protected void bind(PreparedStatement ps, Customer customer) throws SQLException {
+        ps.setLong(1, customer.getId());
+        ps.setString(2, customer.getName());
+        ps.setString(3, customer.getAddress());
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.testetl.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// JDBC batch inserts committed one chunk at a time, with ids drawn from a pooled sequence.
+// Subclasses supply the INSERT, how a row binds to it, the key order for parallel loads and the sequence.
+public abstract class ChunkedJdbcLoader<T> {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${etl.load.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${etl.load.parallelism:4}")
+    private int parallelism;
+
+    private final String insertSql;
+    private final Comparator<T> keyOrder;
+    private final int idBlockSize;
+    // Shared by every parallel load; threads start as ranges need them and retire once idle
+    private final ExecutorService executor;
+
+    private final AtomicLong rowsLoaded = new AtomicLong();
+    private volatile LoadResult lastLoad = new LoadResult(0, 0, 0);
+
+    public record LoadResult(long rows, long chunks, long elapsedNanos) {
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    protected ChunkedJdbcLoader(String insertSql, Comparator<T> keyOrder, int idBlockSize) {
+        this.insertSql = insertSql;
+        this.keyOrder = keyOrder;
+        this.idBlockSize = idBlockSize;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "etl-load-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    protected abstract String sequenceQuery();
+
+    protected abstract void setId(T row, long id);
+
+    protected abstract void bind(PreparedStatement ps, T row) throws SQLException;
+
+    // Single stream; only the rows of the current chunk are held in memory
+    public LoadResult load(Iterator<T> rows) {
+        long start = System.nanoTime();
+        long loaded = 0;
+        long chunks = 0;
+        List<T> chunk = new ArrayList<>(chunkSize);
+        while (rows.hasNext()) {
+            chunk.add(rows.next());
+            if (chunk.size() == chunkSize) {
+                loaded += insertChunk(chunk);
+                chunks++;
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            loaded += insertChunk(chunk);
+            chunks++;
+        }
+        return finished(new LoadResult(loaded, chunks, System.nanoTime() - start));
+    }
+
+    // Sorts by key and loads contiguous key ranges in parallel, each on its own connection
+    public LoadResult load(List<T> rows) {
+        long start = System.nanoTime();
+        List<T> sorted = new ArrayList<>(rows);
+        sorted.sort(keyOrder);
+
+        int ranges = Math.max(1, Math.min(parallelism, (sorted.size() + chunkSize - 1) / chunkSize));
+        int rangeSize = (sorted.size() + ranges - 1) / ranges;
+        AtomicLong chunks = new AtomicLong();
+        // A failed range stops the others at their next chunk; chunks already committed stay loaded
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Future<Long>> results = new ArrayList<>();
+        for (int from = 0; from < sorted.size(); from += rangeSize) {
+            List<T> range = sorted.subList(from, Math.min(sorted.size(), from + rangeSize));
+            results.add(executor.submit(() -> {
+                long loaded = 0;
+                try {
+                    for (int i = 0; i < range.size() && !failed.get(); i += chunkSize) {
+                        loaded += insertChunk(range.subList(i, Math.min(range.size(), i + chunkSize)));
+                        chunks.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    failed.set(true);
+                    throw e;
+                }
+                return loaded;
+            }));
+        }
+        // Every range is waited for, so nothing is still writing once load returns or throws
+        long loaded = 0;
+        Throwable failure = null;
+        try {
+            for (Future<Long> result : results) {
+                try {
+                    loaded += result.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            failed.set(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bulk load interrupted", e);
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Bulk load failed; committed chunks remain loaded", failure);
+        }
+        return finished(new LoadResult(loaded, chunks.get(), System.nanoTime() - start));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @ManagedAttribute(description = "Rows inserted by completed loads since startup")
+    public long getRowsLoaded() {
+        return rowsLoaded.get();
+    }
+
+    @ManagedAttribute(description = "Rows inserted by the last completed load")
+    public long getLastLoadRows() {
+        return lastLoad.rows();
+    }
+
+    @ManagedAttribute(description = "Chunks committed by the last completed load")
+    public long getLastLoadChunks() {
+        return lastLoad.chunks();
+    }
+
+    @ManagedAttribute(description = "Insert rate of the last completed load, in rows per second")
+    public double getLastLoadRowsPerSecond() {
+        return lastLoad.rowsPerSecond();
+    }
+
+    private LoadResult finished(LoadResult result) {
+        rowsLoaded.addAndGet(result.rows());
+        lastLoad = result;
+        return result;
+    }
+
+    // Takes a pooled connection for the id blocks and another for the insert, one after the other; subclasses
+    // may wrap it to bound how many chunks hold a connection at once
+    protected long insertChunk(List<T> chunk) {
+        assignIds(chunk);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(insertSql, chunk, chunk.size(), this::bind));
+        return chunk.size();
+    }
+
+    // Same scheme as Hibernate's pooled optimizer: each sequence value is the top of a block of idBlockSize ids
+    private void assignIds(List<T> chunk) {
+        long next = 0;
+        long high = -1;
+        for (T row : chunk) {
+            if (next > high) {
+                high = jdbcTemplate.queryForObject(sequenceQuery(), Long.class);
+                next = Math.max(1, high - idBlockSize + 1);
+            }
+            setId(row, next++);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.testetl.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ChunkedJdbcLoaderTest {
+
+    private static final int ID_BLOCK_SIZE = 50;
+
+    // A private in-memory database per test behind a pool, as in the application, so that every range gets its
+    // own connection and opening connections is not what the timings measure
+    private final HikariDataSource dataSource = pool();
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final List<RowLoader> loaders = new ArrayList<>();
+
+    ChunkedJdbcLoaderTest() {
+        jdbcTemplate.execute("CREATE TABLE ROW_DATA (ID BIGINT PRIMARY KEY, NAME VARCHAR(20) NOT NULL)");
+        jdbcTemplate.execute("CREATE SEQUENCE ROW_SEQ START WITH 1 INCREMENT BY " + ID_BLOCK_SIZE);
+    }
+
+    @AfterEach
+    void shutdown() {
+        loaders.forEach(RowLoader::shutdown);
+        jdbcTemplate.execute("SHUTDOWN");
+        dataSource.close();
+    }
+
+    @Test
+    void eachChunkCommitsOnItsOwn() {
+        RowLoader loader = loader(10, 1);
+        List<Row> rows = rows(35);
+        // Too long for NAME, so the third chunk fails
+        rows.set(27, new Row("X".repeat(21)));
+
+        assertThrows(RuntimeException.class, () -> loader.load(rows.iterator()));
+
+        assertEquals(20, count());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ROW_DATA WHERE NAME >= ?", Long.class,
+                rows.get(20).name));
+    }
+
+    @Test
+    void parallelLoadSplitsTheRowsIntoKeyRanges() {
+        RowLoader loader = loader(30, 4);
+        List<Row> rows = rows(400);
+        Collections.shuffle(rows, new Random(7));
+
+        ChunkedJdbcLoader.LoadResult result = loader.load(rows);
+
+        assertEquals(400, result.rows());
+        assertEquals(400, count());
+        // Four ranges of 100 consecutive keys, each cut into chunks of 30, 30, 30 and 10 and loaded in key order
+        List<List<String>> expected = new ArrayList<>();
+        for (int range = 0; range < 400; range += 100) {
+            for (int from = range; from < range + 100; from += 30) {
+                expected.add(keys(from, Math.min(30, range + 100 - from)));
+            }
+        }
+        List<List<String>> loaded = loader.chunks.stream().map(Chunk::keys).toList();
+        assertEquals(16, result.chunks());
+        assertEquals(new HashSet<>(expected), new HashSet<>(loaded));
+        for (int i = 0; i < expected.size(); i++) {
+            if (i % 4 != 0) {
+                assertTrue(loaded.indexOf(expected.get(i - 1)) < loaded.indexOf(expected.get(i)));
+            }
+        }
+        assertTrue(loader.chunks.stream().map(Chunk::thread).distinct().count() > 1);
+    }
+
+    @Test
+    void everyRangeHasStoppedWhenAFailedLoadThrows() throws InterruptedException {
+        RowLoader loader = loader(10, 4);
+        List<Row> rows = rows(400);
+        // Sorts first, so the first chunk of the first range fails
+        rows.set(5, new Row("A".repeat(21)));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> loader.load(rows));
+
+        assertNotNull(e.getCause());
+        long committed = count();
+        assertEquals(loader.chunks.size() * 10L, committed);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ROW_DATA WHERE NAME < 'ROW0100'", Long.class));
+        Thread.sleep(100);
+        assertEquals(committed, count());
+    }
+
+    @Test
+    void pooledIdsNeverOverlapAcrossConcurrentLoadsAndOtherSequenceUsers() throws Exception {
+        RowLoader first = loader(7, 4);
+        RowLoader second = loader(7, 4);
+        List<Row> firstRows = rows(0, 500);
+        List<Row> secondRows = rows(500, 500);
+
+        CompletableFuture<ChunkedJdbcLoader.LoadResult> a = CompletableFuture.supplyAsync(() -> first.load(firstRows));
+        CompletableFuture<ChunkedJdbcLoader.LoadResult> b = CompletableFuture.supplyAsync(() -> second.load(secondRows));
+        // Another user of the sequence, such as Hibernate's pooled optimizer, takes blocks while the loads run
+        Set<Long> taken = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            long high = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR ROW_SEQ", Long.class);
+            for (long id = Math.max(1, high - ID_BLOCK_SIZE + 1); id <= high; id++) {
+                taken.add(id);
+            }
+        }
+        a.get();
+        b.get();
+
+        Set<Long> ids = new HashSet<>();
+        for (Row row : firstRows) {
+            ids.add(row.id);
+        }
+        for (Row row : secondRows) {
+            ids.add(row.id);
+        }
+        assertEquals(1_000, ids.size());
+        assertTrue(Collections.disjoint(ids, taken));
+        assertEquals(1_000, jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT ID) FROM ROW_DATA", Long.class));
+    }
+
+    @Test
+    void loadResultReportsRowsChunksAndRate() {
+        RowLoader loader = loader(10, 2);
+
+        ChunkedJdbcLoader.LoadResult streamed = loader.load(rows(0, 25).iterator());
+        ChunkedJdbcLoader.LoadResult parallel = loader.load(rows(25, 41));
+
+        assertEquals(25, streamed.rows());
+        assertEquals(3, streamed.chunks());
+        assertEquals(41, parallel.rows());
+        // Two ranges, of 21 and 20 rows
+        assertEquals(5, parallel.chunks());
+        assertTrue(parallel.elapsedNanos() > 0);
+        assertEquals(41 * 1e9 / parallel.elapsedNanos(), parallel.rowsPerSecond(), 1e-6);
+        assertEquals(66, count());
+        assertEquals(66, loader.getRowsLoaded());
+        assertEquals(41, loader.getLastLoadRows());
+        assertEquals(5, loader.getLastLoadChunks());
+        assertEquals(parallel.rowsPerSecond(), loader.getLastLoadRowsPerSecond());
+    }
+
+    // Hibernate cannot batch inserts under IDENTITY ids: each row is its own statement, and its key is read back
+    // before the next one. The loader binds ids from pooled sequence blocks instead and sends a chunk as one batch.
+    @Test
+    void batchedInsertsWithPooledIdsOutrunSingleRowIdentityInserts() {
+        jdbcTemplate.execute("CREATE TABLE IDENTITY_DATA (ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "NAME VARCHAR(20) NOT NULL)");
+        TransactionTemplate transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        RowLoader loader = loader(1_000, 1);
+        int rows = 20_000;
+
+        // The first pass of each warms up the JIT and H2; the second is measured
+        double identity = 0;
+        double batched = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            jdbcTemplate.execute("TRUNCATE TABLE IDENTITY_DATA");
+            jdbcTemplate.execute("TRUNCATE TABLE ROW_DATA");
+            List<String> keys = keys(0, rows);
+            long start = System.nanoTime();
+            for (int from = 0; from < rows; from += 1_000) {
+                List<String> chunk = keys.subList(from, from + 1_000);
+                transactions.executeWithoutResult(status -> {
+                    for (String key : chunk) {
+                        KeyHolder id = new GeneratedKeyHolder();
+                        jdbcTemplate.update(connection -> {
+                            PreparedStatement ps = connection.prepareStatement(
+                                    "INSERT INTO IDENTITY_DATA (NAME) VALUES (?)", new String[] {"ID"});
+                            ps.setString(1, key);
+                            return ps;
+                        }, id);
+                        assertNotNull(id.getKey());
+                    }
+                });
+            }
+            identity = rows * 1e9 / (System.nanoTime() - start);
+            batched = loader.load(rows(0, rows).iterator()).rowsPerSecond();
+        }
+
+        System.out.printf("INSERT: rows=%d, identity single-row=%.0f rows/s, pooled batched=%.0f rows/s (%.1fx)%n",
+                rows, identity, batched, batched / identity);
+        assertEquals(rows, count());
+        assertEquals(rows, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM IDENTITY_DATA", Long.class));
+        assertTrue(batched > identity, String.format("batched %.0f rows/s, identity %.0f rows/s", batched, identity));
+    }
+
+    private RowLoader loader(int chunkSize, int parallelism) {
+        RowLoader loader = new RowLoader();
+        ReflectionTestUtils.setField(loader, ChunkedJdbcLoader.class, "jdbcTemplate", jdbcTemplate, JdbcTemplate.class);
+        ReflectionTestUtils.setField(loader, ChunkedJdbcLoader.class, "transactionManager",
+                new DataSourceTransactionManager(dataSource), null);
+        ReflectionTestUtils.setField(loader, ChunkedJdbcLoader.class, "chunkSize", chunkSize, int.class);
+        ReflectionTestUtils.setField(loader, ChunkedJdbcLoader.class, "parallelism", parallelism, int.class);
+        loaders.add(loader);
+        return loader;
+    }
+
+    private static HikariDataSource pool() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setMaximumPoolSize(10);
+        return new HikariDataSource(config);
+    }
+
+    private long count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ROW_DATA", Long.class);
+    }
+
+    private static List<Row> rows(int count) {
+        return rows(0, count);
+    }
+
+    // NAME is the key: ROW0000, ROW0001, ... sort in the order they were made
+    private static List<Row> rows(int from, int count) {
+        List<Row> rows = new ArrayList<>();
+        for (String key : keys(from, count)) {
+            rows.add(new Row(key));
+        }
+        return rows;
+    }
+
+    private static List<String> keys(int from, int count) {
+        List<String> keys = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            keys.add(String.format("ROW%04d", i));
+        }
+        return keys;
+    }
+
+    private record Chunk(String thread, List<String> keys) {
+    }
+
+    private static final class Row {
+        final String name;
+        long id;
+
+        Row(String name) {
+            this.name = name;
+        }
+    }
+
+    // Records the keys of every chunk it commits, in commit order, and the thread that committed it
+    private static final class RowLoader extends ChunkedJdbcLoader<Row> {
+        final List<Chunk> chunks = new CopyOnWriteArrayList<>();
+
+        RowLoader() {
+            super("INSERT INTO ROW_DATA (ID, NAME) VALUES (?, ?)", Comparator.comparing(row -> row.name),
+                    ID_BLOCK_SIZE);
+        }
+
+        @Override
+        protected long insertChunk(List<Row> chunk) {
+            long inserted = super.insertChunk(chunk);
+            chunks.add(new Chunk(Thread.currentThread().getName(), chunk.stream().map(row -> row.name).toList()));
+            return inserted;
+        }
+
+        @Override
+        protected String sequenceQuery() {
+            return "SELECT NEXT VALUE FOR ROW_SEQ";
+        }
+
+        @Override
+        protected void setId(Row row, long id) {
+            row.id = id;
+        }
+
+        @Override
+        protected void bind(PreparedStatement ps, Row row) throws SQLException {
+            ps.setLong(1, row.id);
+            ps.setString(2, row.name);
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package com.example.testetl.service;
 
+import com.example.common.Bulkhead;
+import com.example.customer.cache.CustomerIdFilter;
 import com.example.testetl.dto.CustomerRequest;
 import com.example.testetl.dto.CustomerResponse;
 import com.example.testetl.entity.Customer;
 import com.example.testetl.repository.CustomerRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 public class CustomerService {
@@ -14,8 +22,28 @@ public class CustomerService {
     @Autowired
     private CustomerRepository customerRepository;
 
-    @Transactional
+    @Autowired
+    private CustomerBulkLoader customerBulkLoader;
+
+    @Autowired
+    private CustomerIdFilter customerIdFilter;
+
+    // The permit is taken before the transaction starts, so a waiting request never holds a connection
+    private final Bulkhead bulkhead;
+    private final TransactionTemplate transactionTemplate;
+
+    public CustomerService(PlatformTransactionManager transactionManager,
+                           @Value("${testetl.bulkhead.max-concurrent:2}") int maxConcurrent,
+                           @Value("${testetl.bulkhead.max-wait:PT0.5S}") Duration maxWait) {
+        this.bulkhead = new Bulkhead("testetl", maxConcurrent, maxWait);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     public CustomerResponse processCustomer(CustomerRequest request) {
+        return bulkhead.call(() -> transactionTemplate.execute(status -> process(request)));
+    }
+
+    private CustomerResponse process(CustomerRequest request) {
         // Initialize process
         initializeProcess();
 
@@ -32,6 +60,16 @@ public class CustomerService {
         return buildResponse(customer);
     }
 
+    // Bulk path for whole ETL files: same validation and transform, loaded in committed JDBC batches
+    public CustomerBulkLoader.LoadResult loadCustomers(List<CustomerRequest> requests) {
+        List<Customer> customers = new ArrayList<>(requests.size());
+        for (CustomerRequest request : requests) {
+            validateCustomerData(request);
+            customers.add(toBulkRow(request));
+        }
+        return customerBulkLoader.load(customers);
+    }
+
     private void initializeProcess() {
         // Initialization logic
     }
@@ -67,8 +105,17 @@ public class CustomerService {
         return new Customer();
     }
 
+    // The bulk path writes NAME and ADDRESS straight from the request; processCustomer keeps its own transform
+    private Customer toBulkRow(CustomerRequest request) {
+        Customer customer = new Customer();
+        customer.setName(request.getName());
+        customer.setAddress(request.getAddress());
+        return customer;
+    }
+
+    // The new id reaches the id filter before the transaction commits, so the row is never rejected as unknown
     private void loadProcessedData(Customer customer) {
-        customerRepository.save(customer);
+        customerIdFilter.add(customerRepository.save(customer).getId());
     }
 
     private CustomerResponse buildResponse(Customer customer) {
@@ -0,0 +1,19 @@
+-- Id sequences for the pooled generators (allocationSize 50). Each value Hibernate or the bulk loader
+-- takes from a sequence is the top of a block of 50 ids, so every sequence must restart at least 50
+-- above the highest id already in its table.
+-- Run once against an existing schema, with the applications stopped, before deploying the sequence
+-- mappings. Each restart value is computed first, since most databases take only a literal or a
+-- variable after RESTART WITH. H2 syntax, like the default etl.load.customer-data-sequence-query.
+-- On PostgreSQL use
+--   SELECT setval('customer_data_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM customer_data), false);
+
+CREATE SEQUENCE IF NOT EXISTS CUSTOMER_DATA_SEQ START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS SAMPLE_DATA_SEQ START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS SQLSTATE_CHECK_SEQ START WITH 1 INCREMENT BY 50;
+
+SET @NEXT_ID = (SELECT COALESCE(MAX(ID), 0) + 50 FROM CUSTOMER_DATA);
+ALTER SEQUENCE CUSTOMER_DATA_SEQ RESTART WITH @NEXT_ID;
+SET @NEXT_ID = (SELECT COALESCE(MAX(ID), 0) + 50 FROM SAMPLE_DATA);
+ALTER SEQUENCE SAMPLE_DATA_SEQ RESTART WITH @NEXT_ID;
+SET @NEXT_ID = (SELECT COALESCE(MAX(ID), 0) + 50 FROM SQLSTATE_CHECK);
+ALTER SEQUENCE SQLSTATE_CHECK_SEQ RESTART WITH @NEXT_ID;
@@ -0,0 +1,61 @@
+package com.example.testetl.service;
+
+import com.example.testetl.entity.CustomerData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Comparator;
+
+// Loads processed customer data into CUSTOMER_DATA with JDBC batch inserts, committing every chunk
+@Component
+@ManagedResource(objectName = "com.example.testetl:type=BulkLoader,name=customer-data")
+public class CustomerDataBulkLoader extends ChunkedJdbcLoader<CustomerData> {
+
+    private static final String INSERT_SQL = "INSERT INTO CUSTOMER_DATA (ID, RECORDS_READ, RECORDS_PROCESSED, RECORDS_ERROR, "
+            + "TOTAL_BALANCE, AVERAGE_BALANCE, AVAILABLE_CREDIT, RISK_LEVEL, YEAR, MONTH, DAY, FORMATTED_DATE) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Parallel loads split the rows into processing date ranges
+    private static final Comparator<CustomerData> KEY_ORDER = Comparator.comparingInt(CustomerData::getYear)
+            .thenComparingInt(CustomerData::getMonth)
+            .thenComparingInt(CustomerData::getDay);
+
+    // Same block size as the @SequenceGenerator on CustomerData, so loader and Hibernate ids never overlap
+    private static final int ID_BLOCK_SIZE = 50;
+
+    @Value("${etl.load.customer-data-sequence-query:SELECT NEXT VALUE FOR CUSTOMER_DATA_SEQ}")
+    private String sequenceQuery;
+
+    public CustomerDataBulkLoader() {
+        super(INSERT_SQL, KEY_ORDER, ID_BLOCK_SIZE);
+    }
+
+    @Override
+    protected String sequenceQuery() {
+        return sequenceQuery;
+    }
+
+    @Override
+    protected void setId(CustomerData data, long id) {
+        data.setId(id);
+    }
+
+    @Override
+    protected void bind(PreparedStatement ps, CustomerData data) throws SQLException {
+        ps.setLong(1, data.getId());
+        ps.setInt(2, data.getRecordsRead());
+        ps.setInt(3, data.getRecordsProcessed());
+        ps.setInt(4, data.getRecordsError());
+        ps.setDouble(5, data.getTotalBalance());
+        ps.setDouble(6, data.getAverageBalance());
+        ps.setDouble(7, data.getAvailableCredit());
+        ps.setString(8, data.getRiskLevel());
+        ps.setInt(9, data.getYear());
+        ps.setInt(10, data.getMonth());
+        ps.setInt(11, data.getDay());
+        ps.setString(12, data.getFormattedDate());
+    }
+}
@@ -2,14 +2,28 @@ package com.example.testetl.controller;
 
 import com.example.testetl.dto.CustomerDataRequest;
 import com.example.testetl.dto.CustomerDataResponse;
+import com.example.testetl.dto.EtlJobStatus;
 import com.example.testetl.service.CustomerDataService;
+import com.example.testetl.service.EtlJob;
+import com.example.testetl.service.EtlJobEvents;
+import com.example.testetl.service.EtlJobService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 public class CustomerDataController {
@@ -17,9 +31,43 @@ public class CustomerDataController {
     @Autowired
     private CustomerDataService customerDataService;
 
+    @Autowired
+    private EtlJobService etlJobService;
+
+    @Autowired
+    private EtlJobEvents etlJobEvents;
+
     @PostMapping("/processCustomerData")
     public ResponseEntity<CustomerDataResponse> processCustomerData(@Valid @RequestBody CustomerDataRequest request) {
         CustomerDataResponse response = customerDataService.processCustomerData(request);
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    // Accepts a fixed-width customer file and answers 202 with the job id; the file is processed in the background
+    @PostMapping(path = "/etl/jobs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<EtlJobStatus> submitJob(@RequestPart("file") MultipartFile file) throws IOException {
+        try {
+            EtlJob job = etlJobService.submit(file);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/etl/jobs/" + job.getId()))
+                    .body(job.status());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "30").build();
+        }
+    }
+
+    @GetMapping("/etl/jobs/{jobId}")
+    public ResponseEntity<EtlJobStatus> getJob(@PathVariable String jobId) {
+        return etlJobService.find(jobId)
+                .map(job -> ResponseEntity.ok(job.status()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Pushes 'progress' events while the job runs and one 'summary' event when it ends, then closes the stream
+    @GetMapping(path = "/etl/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable String jobId) {
+        return etlJobService.find(jobId)
+                .map(job -> ResponseEntity.ok(etlJobEvents.subscribe(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
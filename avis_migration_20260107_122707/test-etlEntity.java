@@ -5,6 +5,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
@@ -12,7 +13,8 @@ import jakarta.persistence.Table;
 public class CustomerData {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_data_seq")
+    @SequenceGenerator(name = "customer_data_seq", sequenceName = "CUSTOMER_DATA_SEQ", allocationSize = 50)
     private Long id;
 
     @Column(name = "RECORDS_READ")
@@ -49,4 +51,100 @@ public class CustomerData {
     private String formattedDate;
 
     // Getters and setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public int getRecordsRead() {
+        return recordsRead;
+    }
+
+    public void setRecordsRead(int recordsRead) {
+        this.recordsRead = recordsRead;
+    }
+
+    public int getRecordsProcessed() {
+        return recordsProcessed;
+    }
+
+    public void setRecordsProcessed(int recordsProcessed) {
+        this.recordsProcessed = recordsProcessed;
+    }
+
+    public int getRecordsError() {
+        return recordsError;
+    }
+
+    public void setRecordsError(int recordsError) {
+        this.recordsError = recordsError;
+    }
+
+    public double getTotalBalance() {
+        return totalBalance;
+    }
+
+    public void setTotalBalance(double totalBalance) {
+        this.totalBalance = totalBalance;
+    }
+
+    public double getAverageBalance() {
+        return averageBalance;
+    }
+
+    public void setAverageBalance(double averageBalance) {
+        this.averageBalance = averageBalance;
+    }
+
+    public double getAvailableCredit() {
+        return availableCredit;
+    }
+
+    public void setAvailableCredit(double availableCredit) {
+        this.availableCredit = availableCredit;
+    }
+
+    public String getRiskLevel() {
+        return riskLevel;
+    }
+
+    public void setRiskLevel(String riskLevel) {
+        this.riskLevel = riskLevel;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public void setYear(int year) {
+        this.year = year;
+    }
+
+    public int getMonth() {
+        return month;
+    }
+
+    public void setMonth(int month) {
+        this.month = month;
+    }
+
+    public int getDay() {
+        return day;
+    }
+
+    public void setDay(int day) {
+        this.day = day;
+    }
+
+    public String getFormattedDate() {
+        return formattedDate;
+    }
+
+    public void setFormattedDate(String formattedDate) {
+        this.formattedDate = formattedDate;
+    }
 }
\ No newline at end of file
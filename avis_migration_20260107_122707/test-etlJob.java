@@ -0,0 +1,85 @@
+package com.example.testetl.service;
+
+import com.example.testetl.dto.EtlJobStatus;
+import com.example.testetl.entity.CustomerData;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One submitted ETL run. Counters are written by the job thread and read by status requests.
+public class EtlJob {
+
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String fileName;
+    private final Instant submittedAt = Instant.now();
+
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile CustomerData summary;
+    private volatile String error;
+
+    // WS-RECORDS-READ, WS-RECORDS-PROCESSED and WS-RECORDS-ERROR while the file is being read
+    private final AtomicLong recordsRead = new AtomicLong();
+    private final AtomicLong recordsProcessed = new AtomicLong();
+    private final AtomicLong recordsError = new AtomicLong();
+
+    public EtlJob(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    void start() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+    }
+
+    void complete(CustomerData summary) {
+        this.summary = summary;
+        finishedAt = Instant.now();
+        state = State.COMPLETED;
+    }
+
+    void fail(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        state = State.FAILED;
+    }
+
+    public void recordRead() {
+        recordsRead.incrementAndGet();
+    }
+
+    public void recordProcessed() {
+        recordsProcessed.incrementAndGet();
+    }
+
+    public void recordError() {
+        recordsError.incrementAndGet();
+    }
+
+    public EtlJobStatus status() {
+        return new EtlJobStatus(id, state.name(), fileName, submittedAt, startedAt, finishedAt,
+                recordsRead.get(), recordsProcessed.get(), recordsError.get(), summary, error);
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.testetl.service;
+
+import com.example.testetl.dto.EtlJobStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Pushes job progress to SSE subscribers from one scheduler thread, however many clients are listening.
+// Each job's status is serialized once per tick and the same payload is handed to all of its subscribers;
+// ticks where a running job's counters have not moved send nothing. The socket writes happen per subscriber
+// on a virtual thread, so a slow client only delays its own events, and it is sent the newest one when it
+// catches up rather than every one it missed.
+@Component
+public class EtlJobEvents {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<EtlJob, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Map<EtlJob, EtlJobStatus> lastSent = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor();
+    private final long timeoutMillis;
+
+    public EtlJobEvents(@Value("${etl.jobs.progress-interval:PT1S}") Duration interval,
+                        @Value("${etl.jobs.events-timeout:PT30M}") Duration timeout) {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "etl-job-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timeoutMillis = timeout.toMillis();
+        long period = interval.toMillis();
+        scheduler.scheduleAtFixedRate(this::tick, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe(EtlJob job) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(job, emitter);
+        Runnable remove = () -> unsubscribe(subscriber);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        subscribers.computeIfAbsent(job, key -> new CopyOnWriteArraySet<>()).add(subscriber);
+        // The new subscriber gets the current state straight away, from the scheduler thread like every other send
+        scheduler.execute(() -> send(Set.of(subscriber), job.status()));
+        return emitter;
+    }
+
+    // Called when a job ends so subscribers get the summary without waiting for the next tick
+    public void jobFinished(EtlJob job) {
+        if (subscribers.containsKey(job)) {
+            scheduler.execute(() -> publish(job));
+        }
+    }
+
+    private void tick() {
+        for (EtlJob job : subscribers.keySet()) {
+            publish(job);
+        }
+    }
+
+    private void publish(EtlJob job) {
+        Set<Subscriber> jobSubscribers = subscribers.get(job);
+        if (jobSubscribers == null || jobSubscribers.isEmpty()) {
+            return;
+        }
+        EtlJobStatus status = job.status();
+        // An idle job between ticks has nothing new to say
+        if (status.finishedAt() == null && status.equals(lastSent.put(job, status))) {
+            return;
+        }
+        send(jobSubscribers, status);
+    }
+
+    private void send(Set<Subscriber> jobSubscribers, EtlJobStatus status) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(status);
+        } catch (JsonProcessingException e) {
+            return;
+        }
+        Event event = new Event(payload, status.finishedAt() != null);
+        for (Subscriber subscriber : jobSubscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        EtlJob job = subscriber.job;
+        subscribers.computeIfPresent(job, (key, jobSubscribers) -> {
+            jobSubscribers.remove(subscriber);
+            return jobSubscribers.isEmpty() ? null : jobSubscribers;
+        });
+        if (!subscribers.containsKey(job)) {
+            lastSent.remove(job);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        writers.shutdownNow();
+        subscribers.values().forEach(jobSubscribers -> jobSubscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+    }
+
+    private record Event(String payload, boolean finished) {
+    }
+
+    // Holds only the newest event not yet written, with at most one write in flight. Every event is offered
+    // from the scheduler thread, so a summary is never replaced by an older progress event.
+    private final class Subscriber {
+        final EtlJob job;
+        final SseEmitter emitter;
+        private final AtomicReference<Event> pending = new AtomicReference<>();
+        private final AtomicBoolean writing = new AtomicBoolean();
+        private volatile boolean done;
+
+        Subscriber(EtlJob job, SseEmitter emitter) {
+            this.job = job;
+            this.emitter = emitter;
+        }
+
+        void offer(Event event) {
+            if (done) {
+                return;
+            }
+            pending.set(event);
+            schedule();
+        }
+
+        private void schedule() {
+            if (writing.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            Event event;
+            while (!done && (event = pending.getAndSet(null)) != null) {
+                write(event);
+            }
+            writing.set(false);
+            // An event offered after the loop ended but before writing was cleared would otherwise wait for the next
+            if (!done && pending.get() != null) {
+                schedule();
+            }
+        }
+
+        private void write(Event event) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name(event.finished() ? "summary" : "progress")
+                        .data(event.payload(), MediaType.APPLICATION_JSON));
+                if (event.finished()) {
+                    done = true;
+                    emitter.complete();
+                    unsubscribe(this);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away
+                done = true;
+                emitter.completeWithError(e);
+                unsubscribe(this);
+            }
+        }
+    }
+}
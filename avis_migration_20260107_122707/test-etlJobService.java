@@ -0,0 +1,115 @@
+package com.example.testetl.service;
+
+import com.example.testetl.entity.CustomerData;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs uploaded customer files through CustomerDataService off the request thread.
+// At most `workers` files are processed at once and `queue-capacity` more may wait; beyond that submit is refused.
+@Service
+public class EtlJobService {
+
+    @Autowired
+    private CustomerDataService customerDataService;
+
+    @Autowired
+    private EtlJobEvents etlJobEvents;
+
+    private final Map<String, EtlJob> jobs = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    // Finished jobs are dropped after the retention period whether or not anything else is submitted
+    private final ScheduledExecutorService evictor;
+    private final Path spoolDir;
+    private final Duration retention;
+
+    public EtlJobService(@Value("${etl.jobs.workers:2}") int workers,
+                         @Value("${etl.jobs.queue-capacity:16}") int queueCapacity,
+                         @Value("${etl.jobs.spool-dir:${java.io.tmpdir}/etl-jobs}") Path spoolDir,
+                         @Value("${etl.jobs.retention:PT1H}") Duration retention,
+                         @Value("${etl.jobs.eviction-interval:PT1M}") Duration evictionInterval) throws IOException {
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "etl-job-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.spoolDir = Files.createDirectories(spoolDir);
+        this.retention = retention;
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "etl-job-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = evictionInterval.toMillis();
+        evictor.scheduleAtFixedRate(this::evictExpired, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // The upload is moved to the spool directory before the job is queued, so the request returns
+    // as soon as the body has been received
+    public EtlJob submit(MultipartFile file) throws IOException {
+        EtlJob job = new EtlJob(file.getOriginalFilename());
+        Path input = spoolDir.resolve(job.getId() + ".dat");
+        file.transferTo(input);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, input));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            Files.deleteIfExists(input);
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<EtlJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void run(EtlJob job, Path input) {
+        job.start();
+        try {
+            CustomerData summary = customerDataService.processCustomerFile(input, job);
+            job.complete(summary);
+        } catch (Exception e) {
+            job.fail(e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            etlJobEvents.jobFinished(job);
+            try {
+                Files.deleteIfExists(input);
+            } catch (IOException ignored) {
+                // a leftover spool file is harmless
+            }
+        }
+    }
+
+    private void evictExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evictor.shutdownNow();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.testetl.dto;
+
+import com.example.testetl.entity.CustomerData;
+
+import java.time.Instant;
+
+// Snapshot of an ETL job returned by the job endpoints; summary is set once the job completes
+public record EtlJobStatus(
+        String jobId,
+        String state,
+        String fileName,
+        Instant submittedAt,
+        Instant startedAt,
+        Instant finishedAt,
+        long recordsRead,
+        long recordsProcessed,
+        long recordsError,
+        CustomerData summary,
+        String error) {
+}
@@ -8,12 +8,32 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
 @Service
 public class CustomerDataService {
 
+    // CUSTOMER-RECORD: CUST-ID 9(8), CUST-NAME X(30), CUST-ACCOUNT-TYPE X(1), CUST-BALANCE 9(7)V99,
+    // CUST-CREDIT-LIMIT 9(7)V99, CUST-STATUS X(1)
+    private static final int RECORD_LENGTH = 58;
+
+    // WS-CONSTANTS, in cents
+    private static final long HIGH_RISK_THRESHOLD = 5_000_000;
+    private static final long MEDIUM_RISK_THRESHOLD = 2_500_000;
+    private static final long MINIMUM_BALANCE = 10_000;
+
     @Autowired
     private CustomerDataRepository customerDataRepository;
 
+    @Autowired
+    private CustomerDataBulkLoader customerDataBulkLoader;
+
     @Transactional
     public CustomerDataResponse processCustomerData(CustomerDataRequest request) {
         // Initialize process
@@ -55,6 +75,95 @@ public class CustomerDataService {
         // Load processed data logic
     }
 
+    // Bulk path for whole ETL files: rows go out in committed JDBC batches, not one save per row
+    public CustomerDataBulkLoader.LoadResult loadProcessedData(List<CustomerData> records) {
+        return customerDataBulkLoader.load(records);
+    }
+
+    // PROCESS-CUSTOMER-FILE over an uploaded CUSTOMER file; the run summary is saved as one CUSTOMER_DATA row
+    public CustomerData processCustomerFile(Path file, EtlJob job) throws IOException {
+        LocalDate today = LocalDate.now();
+        long read = 0;
+        long processed = 0;
+        long totalBalance = 0;
+        long availableCredit = 0;
+        String riskLevel = null;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                read++;
+                job.recordRead();
+                // LINE SEQUENTIAL files drop trailing spaces, so pad back to the FD width, as CustomerRecord.parse does
+                if (line.length() < RECORD_LENGTH) {
+                    line = line + " ".repeat(RECORD_LENGTH - line.length());
+                }
+                long balance = validBalance(line);
+                if (balance < 0) {
+                    job.recordError();
+                    continue;
+                }
+                // TRANSFORM-CUSTOMER-DATA; like the COBOL, the summary keeps the last record's credit and risk
+                availableCredit = cents(line, 48, 57) - balance;
+                riskLevel = balance > HIGH_RISK_THRESHOLD ? "HIGH RISK"
+                        : balance > MEDIUM_RISK_THRESHOLD ? "MEDIUM RISK" : "LOW RISK";
+                processed++;
+                totalBalance += balance;
+                job.recordProcessed();
+                if (Thread.interrupted()) {
+                    throw new IOException("ETL job interrupted");
+                }
+            }
+        }
+
+        CustomerData summary = new CustomerData();
+        summary.setRecordsRead((int) read);
+        summary.setRecordsProcessed((int) processed);
+        summary.setRecordsError((int) (read - processed));
+        summary.setTotalBalance(totalBalance / 100.0);
+        summary.setAverageBalance(processed == 0 ? 0 : totalBalance / 100.0 / processed);
+        summary.setAvailableCredit(availableCredit / 100.0);
+        summary.setRiskLevel(riskLevel);
+        summary.setYear(today.getYear());
+        summary.setMonth(today.getMonthValue());
+        summary.setDay(today.getDayOfMonth());
+        summary.setFormattedDate(today.toString());
+        return customerDataRepository.save(summary);
+    }
+
+    // VALIDATE-CUSTOMER-DATA on a record padded to RECORD_LENGTH; returns CUST-BALANCE in cents, or -1 when
+    // the record is rejected
+    private static long validBalance(String line) {
+        long id = cents(line, 0, 8);
+        if (id <= 0 || line.substring(8, 38).isBlank()) {
+            return -1;
+        }
+        char accountType = line.charAt(38);
+        if (accountType != 'C' && accountType != 'S' && accountType != 'B') {
+            return -1;
+        }
+        long balance = cents(line, 39, 48);
+        if (balance < 0 || cents(line, 48, 57) < 0) {
+            return -1;
+        }
+        if (balance < MINIMUM_BALANCE && line.charAt(57) == 'A') {
+            return -1;
+        }
+        return balance;
+    }
+
+    // Unsigned display digits; -1 if any position is not a digit
+    private static long cents(String line, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
     private void generateReport() {
         // Report generation logic
     }
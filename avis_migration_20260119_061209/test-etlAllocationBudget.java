@@ -0,0 +1,80 @@
+// Allocation budget check - bytes allocated per record on the processing thread
+package com.batch.etl;
+
+import java.lang.management.ManagementFactory;
+
+public class AllocationBudget {
+
+    // Runs one pass over the corpus and returns the number of records processed
+    @FunctionalInterface
+    public interface Workload {
+        long run() throws Exception;
+    }
+
+    // Per-record figures come from the difference between a pass over the full corpus and a pass over
+    // a prefix of it, so buffers, writers and other per-file setup cancel out and only record garbage is left
+    public record Result(long records, long allocatedBytes, long fixedBytesPerPass, double budgetBytesPerRecord) {
+        public double bytesPerRecord() {
+            return records == 0 ? 0 : (double) allocatedBytes / records;
+        }
+
+        public boolean withinBudget() {
+            return bytesPerRecord() <= budgetBytesPerRecord;
+        }
+
+        public String format() {
+            return String.format("ALLOCATION: Records=%d, Bytes=%d, PerRecord=%.1f, PerPass=%d, Budget=%.1f, %s",
+                records, allocatedBytes, bytesPerRecord(), fixedBytesPerPass, budgetBytesPerRecord,
+                withinBudget() ? "OK" : "EXCEEDED");
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private AllocationBudget() {
+    }
+
+    public static boolean isSupported() {
+        return THREADS != null && THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled();
+    }
+
+    // Warm passes let the JIT compile and escape-analyse the hot path before measuring
+    public static Result measure(Workload prefix, Workload full, int warmupPasses, int measuredPasses,
+                                 double budgetBytesPerRecord) throws Exception {
+        if (!isSupported()) {
+            throw new IllegalStateException("Per-thread allocation accounting is not available on this JVM");
+        }
+        for (int i = 0; i < warmupPasses; i++) {
+            prefix.run();
+            full.run();
+        }
+        long[] prefixPass = measure(prefix, measuredPasses);
+        long[] fullPass = measure(full, measuredPasses);
+        long records = fullPass[0] - prefixPass[0];
+        if (records <= 0) {
+            throw new IllegalArgumentException("The full corpus must hold more records than the prefix");
+        }
+        long allocated = Math.max(0, fullPass[1] - prefixPass[1]);
+        long fixed = Math.max(0, prefixPass[1] - Math.round((double) allocated / records * prefixPass[0]));
+        return new Result(records, allocated, fixed, budgetBytesPerRecord);
+    }
+
+    // Records and bytes allocated per pass, taking the least-allocating pass to drop one-off noise
+    private static long[] measure(Workload workload, int passes) throws Exception {
+        long records = 0;
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < passes; i++) {
+            long before = THREADS.getCurrentThreadAllocatedBytes();
+            records = workload.run();
+            least = Math.min(least, THREADS.getCurrentThreadAllocatedBytes() - before);
+        }
+        return new long[] {records, least};
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean) {
+            return bean;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,48 @@
+package com.batch.etl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AllocationBudgetTest {
+
+    private static final int RECORDS = 20_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordPathStaysWithinDeclaredBudget() throws Exception {
+        Path corpus = dir.resolve("corpus.txt");
+        Files.write(corpus, corpus(RECORDS));
+
+        AllocationBudget.Result result = BatchApplication.measureAllocation(corpus, BatchApplication.ALLOCATION_BUDGET);
+        System.out.println(result.format());
+        assertEquals(RECORDS / 2, result.records());
+        assertTrue(result.withinBudget(), result.format());
+    }
+
+    // Fixed corpus: mostly valid deposits and withdrawals, with zero amounts, bad account types,
+    // short lines and repeated rows mixed in at fixed rates
+    static List<String> corpus(int records) {
+        Random random = new Random(20260118L);
+        List<String> lines = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            int kind = i % 50;
+            if (kind == 7) {
+                lines.add("SHORT" + i);
+            } else if (kind == 13 && i > 0) {
+                lines.add(lines.get(i - 1));
+            } else {
+                String type = kind == 21 ? "TRANSFER" : random.nextBoolean() ? "DEPOSIT" : "WITHDRAW";
+                long amount = kind == 33 ? 0 : 1 + random.nextInt(99_999_999);
+                lines.add(String.format("%012d%-8s%08d%09d%012d", 100_000_000L + random.nextInt(900_000_000), type,
+                    20260101 + random.nextInt(28), amount, (long) random.nextInt(Integer.MAX_VALUE)));
+            }
+        }
+        return lines;
+    }
+}
@@ -3,8 +3,15 @@
 package com.batch.etl;
 
 import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import com.batch.etl.model.DataModel.*;
 import com.batch.etl.BusinessLogic;
 import com.batch.etl.FileProcessor;
@@ -14,54 +21,320 @@ public class test-etlBatchApplication {
     private static final String INPUT_FILE = "test-etl_input.txt";
     private static final String VALID_OUTPUT_FILE = "test-etl_valid.txt";
     private static final String REJECT_OUTPUT_FILE = "test-etl_reject.txt";
+    private static final String DELETED_OUTPUT_FILE = "test-etl_deleted.txt";
+    private static final String FINGERPRINT_STORE = "test-etl_fingerprints.dat";
+    private static final int KEY_LENGTH = 12; // PIC X(12) account number
+    private static final boolean DEDUP_ENABLED = Boolean.parseBoolean(System.getProperty("etl.dedup", "true"));
+    private static final boolean DELTA_ENABLED = Boolean.parseBoolean(System.getProperty("etl.delta", "false"));
+    private static final int CHUNK_SIZE = 10_000;
+    // Bytes allocated per record on the record path, enforced by --alloc-budget and AllocationBudgetTest.
+    // Target: reader, parse and format allocate only what a record is made of (the line, its fields, the parsed
+    // and output records and the output or reject text, about 1 KB); the generated validation and BigDecimal
+    // arithmetic in BusinessLogic may take up to 2 KB more. A Formatter or a copy per record goes over.
+    static final double ALLOCATION_BUDGET = Double.parseDouble(System.getProperty("etl.alloc.budget", "3072"));
+    private static final int PROGRESS_PORT = Integer.getInteger("etl.progress.port", 0);
+    private static final double REJECT_STORM_RATIO = Double.parseDouble(System.getProperty("etl.rejectStorm.ratio", "0.5"));
+    private static final int PIPE_BATCH_SIZE = 1_000;
+    private static final int PIPE_CAPACITY = 8; // batches in flight between ETL and LOAD
+    // 0 writes one valid file; N > 0 splits it into N shards by etl.shardKey plus a manifest
+    private static final int SHARD_COUNT = Integer.getInteger("etl.shards", 0);
+    // Field the shards are routed by: account, the only one so far
+    private static final ValidOutput.ShardKey SHARD_KEY = ValidOutput.ShardKey.of(System.getProperty("etl.shardKey", "account"));
+    private static final long WATCH_SHUTDOWN_SECONDS = Long.getLong("etl.watch.shutdownSeconds", 300);
+    private static final int JOB_PARALLELISM = Integer.getInteger("etl.jobs.parallelism", Runtime.getRuntime().availableProcessors());
 
     public static void main(String[] args) {
-        System.out.println("Starting test-etl ETL Batch Process");
-
+        PipelineMetrics.register();
+        if (args.length > 0 && "--alloc-budget".equals(args[0])) {
+            System.exit(checkAllocationBudget(args) ? 0 : 1);
+        }
+        JobProgress.INSTANCE.register();
+        ProgressServer progressServer = startProgressServer();
+        int returnCode = JobStream.RC_OK;
         try {
-            processEtlBatch();
-            System.out.println("ETL Batch Process completed successfully");
-        } catch (Exception e) {
-            System.err.println("ETL Batch Process failed: " + e.getMessage());
-            e.printStackTrace();
+            if (args.length > 0 && "--watch".equals(args[0])) {
+                watchInbox(args);
+            } else if (args.length > 0 && "--stream".equals(args[0])) {
+                returnCode = runJobStream();
+            } else if (args.length > 0 && "--jobs".equals(args[0])) {
+                runJobs(args);
+            } else if (args.length > 0 && "--index".equals(args[0])) {
+                returnCode = customerIndex(args);
+            } else {
+                System.out.println("Starting test-etl ETL Batch Process");
+
+                try {
+                    SummaryRecord summary = processEtlBatch();
+                    System.out.println(summary.format());
+                    System.out.print(PipelineMetrics.format());
+                    System.out.println("ETL Batch Process completed successfully");
+                } catch (Exception e) {
+                    System.err.println("ETL Batch Process failed: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            if (progressServer != null) {
+                progressServer.stop();
+            }
+        }
+        if (returnCode != JobStream.RC_OK) {
+            System.exit(returnCode);
         }
     }
 
-    private static void processEtlBatch() throws IOException {
-        Path inputPath = Paths.get(INPUT_FILE);
-        Path validOutputPath = Paths.get(VALID_OUTPUT_FILE);
-        Path rejectOutputPath = Paths.get(REJECT_OUTPUT_FILE);
+    // Usage: --stream; the job's MAXCC becomes the exit code.
+    // ETL hands valid records to LOAD in memory rather than through the valid file on disk
+    private static int runJobStream() {
+        AtomicReference<SummaryRecord> summary = new AtomicReference<>();
+        try (DeltaTracker delta = DELTA_ENABLED ? DeltaTracker.open(Paths.get(FINGERPRINT_STORE), KEY_LENGTH) : null) {
+            JobStream stream = new JobStream("TESTETL", 2);
+            stream.step("ETL", context -> {
+                SummaryRecord result = processEtlBatch(Paths.get(INPUT_FILE), context.output("VALID"),
+                    Paths.get(REJECT_OUTPUT_FILE), delta);
+                summary.set(result);
+                return result.rejectRecords() > 0 ? JobStream.RC_WARNING : JobStream.RC_OK;
+            });
+            stream.step("LOAD", context -> {
+                JobStream.Channel<OutputRecord> valid = context.input("VALID");
+                // The first take fails if ETL abended before sending anything, so the old valid file survives
+                List<OutputRecord> first = valid.take();
+                try (BufferedWriter validWriter = Files.newBufferedWriter(Paths.get(VALID_OUTPUT_FILE))) {
+                    for (List<OutputRecord> batch = first; batch != null; batch = valid.take()) {
+                        for (OutputRecord output : batch) {
+                            FileProcessor.writeRecord(validWriter, output.format());
+                        }
+                    }
+                }
+                // The pipe only ends once ETL has closed its own outputs, so every output of the run is on disk
+                if (delta != null) {
+                    delta.publish();
+                }
+                return JobStream.RC_OK;
+            });
+            stream.pipe("VALID", "ETL", "LOAD", PIPE_BATCH_SIZE, PIPE_CAPACITY);
+            // COND=(4,LT): no report once ETL or LOAD ends above RC 4
+            stream.step("REPORT", context -> {
+                System.out.println(summary.get().format());
+                System.out.print(PipelineMetrics.format());
+                return JobStream.RC_OK;
+            }).after("ETL", "LOAD").when(JobStream.Condition.cond(4, JobStream.Op.LT));
 
-        try (BufferedReader reader = Files.newBufferedReader(inputPath);
-             BufferedWriter validWriter = Files.newBufferedWriter(validOutputPath);
-             BufferedWriter rejectWriter = Files.newBufferedWriter(rejectOutputPath)) {
+            JobStream.Result result = stream.run();
+            System.out.print(result.format());
+            return result.maxReturnCode();
+        } catch (IOException e) {
+            System.err.println("Fingerprint store failed: " + e.getMessage());
+            return JobStream.RC_SEVERE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Job stream interrupted");
+            return JobStream.RC_SEVERE;
+        }
+    }
 
-            String line;
-            boolean eof = false;
+    // Opt-in with -Detl.progress.port=<port>; serves GET /progress on loopback
+    private static ProgressServer startProgressServer() {
+        if (PROGRESS_PORT <= 0) {
+            return null;
+        }
+        try {
+            ProgressServer server = new ProgressServer(PROGRESS_PORT, JobProgress.INSTANCE);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            System.err.println("Could not start progress endpoint on port " + PROGRESS_PORT + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Usage: --watch [inbox] [outbox] [archive]; -Detl.watch.protocol=rename|marker
+    private static void watchInbox(String[] args) {
+        Path inbox = Paths.get(args.length > 1 ? args[1] : "inbox");
+        Path outbox = Paths.get(args.length > 2 ? args[2] : "outbox");
+        Path archive = Paths.get(args.length > 3 ? args[3] : "archive");
+        InboxWatcher.Protocol protocol = InboxWatcher.Protocol.valueOf(
+            System.getProperty("etl.watch.protocol", "rename").toUpperCase(Locale.ROOT));
+
+        // Drop files are partial feeds, so delta mode never applies to them
+        InboxWatcher watcher = new InboxWatcher(inbox, outbox, archive, protocol,
+            (input, valid, reject) -> processEtlBatch(input, valid, reject, false));
+        watcher.register();
+        // Lets the file in progress finish before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                if (!watcher.stopAndWait(WATCH_SHUTDOWN_SECONDS, TimeUnit.SECONDS)) {
+                    System.err.println("Inbox watcher still busy after " + WATCH_SHUTDOWN_SECONDS + " s; exiting");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        watcher.run();
+    }
 
-            while (!eof && (line = reader.readLine()) != null) {
+    // Usage: --jobs <input>[:weight] ...; each job writes <base>_valid.txt and <base>_reject.txt next to its input
+    // (plus <base>_deleted.txt and <base>_fingerprints.dat in delta mode, shards with etl.shards).
+    // Jobs share one pool of etl.jobs.parallelism workers in proportion to their weights
+    private static void runJobs(String[] args) {
+        long start = System.nanoTime();
+        List<CompletableFuture<SummaryRecord>> jobs = new ArrayList<>();
+        try (JobExecutor executor = new JobExecutor(JOB_PARALLELISM)) {
+            for (int i = 1; i < args.length; i++) {
+                String spec = args[i];
+                int colon = spec.lastIndexOf(':');
+                Path input = Paths.get(colon > 0 ? spec.substring(0, colon) : spec);
+                int weight = colon > 0 ? Integer.parseInt(spec.substring(colon + 1)) : 1;
+                String name = input.getFileName().toString();
                 try {
-                    // Parse input record using DataModel
-                    InputRecord input = InputRecord.parse(line.trim());
-
-                    // Validate using BusinessLogic
-                    if (!BusinessLogic.validateRecord(input)) {
-                        // Write to reject file using DataModel
-                        RejectRecord reject = new RejectRecord(input.getIdentifier(), "INVALID RECORD", input.toString());
-                        FileProcessor.writeRecord(rejectWriter, reject.format());
+                    ChunkedEtlJob job = chunkedJob(name, input);
+                    jobs.add(executor.submit(name, weight, job).whenComplete((summary, failure) -> {
+                        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                        if (failure != null) {
+                            System.err.println(name + " failed after " + millis + " ms: " + failure.getMessage());
+                        } else {
+                            System.out.println(name + " finished after " + millis + " ms: " + summary.format());
+                        }
+                    }));
+                } catch (IOException e) {
+                    System.err.println("Could not start job for " + input + ": " + e.getMessage());
+                }
+            }
+        }
+        for (CompletableFuture<SummaryRecord> job : jobs) {
+            try {
+                job.join();
+            } catch (CompletionException e) {
+                // Already reported when the job ended
+            }
+        }
+        RecordErrorLog.DEFAULT.flush(1000);
+    }
+
+    private static ChunkedEtlJob chunkedJob(String name, Path input) throws IOException {
+        // A missing input fails before any output is created or truncated
+        if (!Files.isRegularFile(input)) {
+            throw new NoSuchFileException(input.toString());
+        }
+        String base = name.lastIndexOf('.') > 0 ? name.substring(0, name.lastIndexOf('.')) : name;
+        DeltaTracker delta = DELTA_ENABLED
+            ? DeltaTracker.open(input.resolveSibling(base + "_fingerprints.dat"), KEY_LENGTH) : null;
+        ValidOutput validOutput;
+        try {
+            validOutput = ValidOutput.open(input.resolveSibling(base + "_valid.txt"), SHARD_COUNT, SHARD_KEY);
+        } catch (IOException e) {
+            try (delta) {
+                throw e;
+            }
+        }
+        return new ChunkedEtlJob(input, validOutput, input.resolveSibling(base + "_reject.txt"),
+            input.resolveSibling(base + "_deleted.txt"), delta, DEDUP_ENABLED ? KEY_LENGTH : 0,
+            JobProgress.forJob(name), CHUNK_SIZE, REJECT_STORM_RATIO);
+    }
+
+    // Usage: --index load <sorted customer file> <index> | --index get <index> <cust-id>...
+    // Keyed reads of the customer master without a database; get prints each record, or RC 4 if any is missing
+    private static int customerIndex(String[] args) {
+        if (args.length < 4 || !("load".equals(args[1]) || "get".equals(args[1]))) {
+            System.err.println("Usage: --index load <sorted customer file> <index> | --index get <index> <cust-id>...");
+            return JobStream.RC_ERROR;
+        }
+        try {
+            if ("load".equals(args[1])) {
+                try (CustomerIndex index = CustomerIndex.bulkLoad(Paths.get(args[2]), Paths.get(args[3]))) {
+                    System.out.println("Loaded " + index.recordCount() + " customers into " + args[3]);
+                }
+                return JobStream.RC_OK;
+            }
+            int returnCode = JobStream.RC_OK;
+            try (CustomerIndex index = CustomerIndex.open(Paths.get(args[2]))) {
+                for (int i = 3; i < args.length; i++) {
+                    byte[] record = index.get(Long.parseLong(args[i]));
+                    if (record == null) {
+                        System.out.println(args[i] + " NOT FOUND");
+                        returnCode = JobStream.RC_WARNING;
                     } else {
-                        // Process valid transaction using BusinessLogic
-                        OutputRecord output = BusinessLogic.processTransaction(input);
-                        FileProcessor.writeRecord(validWriter, output.format());
+                        System.out.println(new String(record, StandardCharsets.ISO_8859_1));
                     }
-
-                } catch (Exception e) {
-                    System.err.println("Error processing record: " + line + " - " + e.getMessage());
-                    // Write to reject file with parsing error using DataModel
-                    RejectRecord reject = new RejectRecord("UNKNOWN", "PARSE ERROR", line);
-                    FileProcessor.writeRecord(rejectWriter, reject.format());
                 }
             }
+            return returnCode;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Customer index failed: " + e.getMessage());
+            return JobStream.RC_ERROR;
+        }
+    }
+
+    // Usage: --alloc-budget [corpus]; fails with exit code 1 when bytes/record exceed etl.alloc.budget
+    private static boolean checkAllocationBudget(String[] args) {
+        Path corpus = Paths.get(args.length > 1 ? args[1] : INPUT_FILE);
+        try {
+            AllocationBudget.Result result = measureAllocation(corpus, ALLOCATION_BUDGET);
+            System.out.println(result.format());
+            return result.withinBudget();
+        } catch (Exception e) {
+            System.err.println("Allocation budget check failed: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // Runs the record path over the first half of the corpus and over all of it; the difference is
+    // what each extra record allocates, without the per-file readers, writers and filters
+    static AllocationBudget.Result measureAllocation(Path corpus, double budget) throws Exception {
+        Path prefix = Files.createTempFile("alloc-prefix", ".txt");
+        Path validOutput = Files.createTempFile("alloc-valid", ".txt");
+        Path rejectOutput = Files.createTempFile("alloc-reject", ".txt");
+        try {
+            List<String> lines = Files.readAllLines(corpus);
+            Files.write(prefix, lines.subList(0, lines.size() / 2));
+            return AllocationBudget.measure(
+                () -> processEtlBatch(prefix, validOutput, rejectOutput, false).totalRecords(),
+                () -> processEtlBatch(corpus, validOutput, rejectOutput, false).totalRecords(),
+                5, 3, budget);
+        } finally {
+            Files.deleteIfExists(prefix);
+            Files.deleteIfExists(validOutput);
+            Files.deleteIfExists(rejectOutput);
+        }
+    }
+
+    private static SummaryRecord processEtlBatch() throws IOException {
+        return processEtlBatch(Paths.get(INPUT_FILE), Paths.get(VALID_OUTPUT_FILE), Paths.get(REJECT_OUTPUT_FILE), DELTA_ENABLED);
+    }
+
+    private static SummaryRecord processEtlBatch(Path inputPath, Path validOutputPath, Path rejectOutputPath,
+                                                 boolean deltaMode) throws IOException {
+        // A missing input fails before any output is created or truncated
+        if (!Files.isRegularFile(inputPath)) {
+            throw new NoSuchFileException(inputPath.toString());
+        }
+        try (DeltaTracker delta = deltaMode ? DeltaTracker.open(Paths.get(FINGERPRINT_STORE), KEY_LENGTH) : null) {
+            SummaryRecord summary;
+            try (ValidOutput validOutput = ValidOutput.open(validOutputPath, SHARD_COUNT, SHARD_KEY)) {
+                summary = processEtlBatch(inputPath, validOutput, rejectOutputPath, delta);
+                validOutput.complete();
+            }
+            // Only now are all outputs closed, so this run can become the next run's baseline
+            if (delta != null) {
+                delta.publish();
+            }
+            return summary;
+        }
+    }
+
+    // delta is null outside delta mode; the caller publishes it once it has closed validSink
+    private static SummaryRecord processEtlBatch(Path inputPath, RecordSink<OutputRecord> validSink, Path rejectOutputPath,
+                                                 DeltaTracker delta) throws IOException {
+        try (RecordPipeline pipeline = new RecordPipeline(inputPath, validSink, rejectOutputPath,
+                Paths.get(DELETED_OUTPUT_FILE), DEDUP_ENABLED ? KEY_LENGTH : 0, delta, JobProgress.INSTANCE,
+                CHUNK_SIZE, REJECT_STORM_RATIO)) {
+            for (String line = pipeline.readLine(); line != null; line = pipeline.readLine()) {
+                RecordPipeline.Outcome outcome = pipeline.admit(line)
+                    ? RecordPipeline.transform(pipeline.recordNumber(), line) : null;
+                pipeline.write(pipeline.lineStart(), outcome);
+            }
+            return pipeline.finish();
         }
     }
 }
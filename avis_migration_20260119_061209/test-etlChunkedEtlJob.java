@@ -0,0 +1,108 @@
+// The test-etl record path split into chunks for the shared JobExecutor
+package com.batch.etl;
+
+import java.io.*;
+import java.nio.file.*;
+import com.batch.etl.model.DataModel.*;
+
+// Reading and admission happen in nextChunk() and accounting in commit(), both in input order, so the
+// RecordPipeline sees the same sequence as the sequential batch; only the transform runs in parallel
+public class ChunkedEtlJob implements JobExecutor.ChunkedJob<SummaryRecord> {
+
+    private final ValidOutput validOutput;
+    private final DeltaTracker delta;
+    private final RecordPipeline pipeline;
+    private final int chunkSize;
+
+    // Takes ownership of validOutput and delta (null outside delta mode) and closes them with the job.
+    // dedupKeyLength of 0 turns duplicate detection off.
+    public ChunkedEtlJob(Path input, ValidOutput validOutput, Path rejectOutput, Path deletedOutput, DeltaTracker delta,
+                         int dedupKeyLength, JobProgress progress, int chunkSize, double rejectStormRatio)
+            throws IOException {
+        this.validOutput = validOutput;
+        this.delta = delta;
+        this.chunkSize = chunkSize;
+        try {
+            this.pipeline = new RecordPipeline(input, validOutput, rejectOutput, deletedOutput, dedupKeyLength, delta,
+                progress, chunkSize, rejectStormRatio);
+        } catch (IOException e) {
+            try (validOutput; delta) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public JobExecutor.Chunk nextChunk() throws IOException {
+        String[] lines = new String[chunkSize];
+        long[] numbers = new long[chunkSize];
+        long[] offsets = new long[chunkSize];
+        int n = 0;
+        String line;
+        while (n < chunkSize && (line = pipeline.readLine()) != null) {
+            // Dropped lines keep their slot so commit() accounts for every line in order
+            lines[n] = pipeline.admit(line) ? line : null;
+            numbers[n] = pipeline.recordNumber();
+            offsets[n] = pipeline.lineStart();
+            n++;
+        }
+        return n == 0 ? null : new EtlChunk(lines, numbers, offsets, n);
+    }
+
+    // Every output is closed before the fingerprint store becomes the next run's baseline
+    @Override
+    public SummaryRecord finish() throws IOException {
+        SummaryRecord summary = pipeline.finish();
+        pipeline.close();
+        validOutput.complete();
+        validOutput.close();
+        if (delta != null) {
+            delta.publish();
+        }
+        return summary;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Closes every resource even when one of them fails
+        try (delta; validOutput; pipeline) {
+        }
+    }
+
+    private final class EtlChunk implements JobExecutor.Chunk {
+        private final String[] lines;
+        private final long[] numbers;
+        private final long[] offsets;
+        private final int size;
+        private final RecordPipeline.Outcome[] outcomes;
+
+        EtlChunk(String[] lines, long[] numbers, long[] offsets, int size) {
+            this.lines = lines;
+            this.numbers = numbers;
+            this.offsets = offsets;
+            this.size = size;
+            this.outcomes = new RecordPipeline.Outcome[size];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void process(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (lines[i] != null) {
+                    outcomes[i] = RecordPipeline.transform(numbers[i], lines[i]);
+                }
+            }
+        }
+
+        @Override
+        public void commit() throws IOException {
+            for (int i = 0; i < size; i++) {
+                pipeline.write(offsets[i], outcomes[i]);
+            }
+        }
+    }
+}
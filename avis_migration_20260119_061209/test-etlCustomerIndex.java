@@ -0,0 +1,706 @@
+// Keyed customer master file - memory-mapped B+tree on CUST-ID (VSAM KSDS replacement)
+// Not thread-safe: an index belongs to one thread at a time. Puts and removes move pages under any
+// concurrent reader, so callers sharing an index must guard every call, reads included, with one lock.
+package com.batch.etl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+import com.batch.etl.model.DataModel.*;
+
+public class CustomerIndex implements Closeable {
+
+    // Return false to stop a range scan early
+    public interface RecordVisitor {
+        boolean visit(long key, byte[] record);
+    }
+
+    private static final long MAGIC = 0x4355535449445831L; // "CUSTIDX1"
+    private static final int PAGE_SIZE = 4096;
+    private static final int PAGES_PER_SEGMENT = 16384;    // 64 MiB per mapping
+    private static final long SEGMENT_SIZE = (long) PAGE_SIZE * PAGES_PER_SEGMENT;
+    private static final int HEADER_LENGTH = 40;           // bytes covered by the header CRC
+    private static final byte LEAF = 1;
+    private static final byte BRANCH = 2;
+    private static final int PAGE_HEADER = 4;              // type(1) + pad(1) + count(2)
+    private static final int BRANCH_CAPACITY = (PAGE_SIZE - PAGE_HEADER - 4) / 12;
+    private static final double LOAD_FACTOR = 0.9;         // bulk load leaves room for inserts
+    private static final int MERGE_THRESHOLD = 4;          // a page under 1/4 full merges with a sibling
+
+    private final Path file;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final BitSet dirtySegments = new BitSet();
+    private final int recordLength;
+    private final int entrySize;
+    private final int leafCapacity;
+    private final byte[] scratch;
+
+    // Last durable header
+    private long committedSeq;
+
+    // Pages written by the open transaction; everything else is shared with the committed tree
+    private final BitSet txnPages = new BitSet();
+    // Committed pages the open transaction no longer uses; reusable once its header is durable
+    private final BitSet pendingFree = new BitSet();
+    // Pages no tree references, handed out again before the file grows
+    private final BitSet freePages = new BitSet();
+
+    private int root;
+    private int height;
+    private int pageCount;
+    private long recordCount;
+    private boolean dirty;
+
+    // Split results handed from a child back to its parent during insert
+    private long splitKey;
+    private int splitRight;
+
+    private CustomerIndex(Path file, FileChannel channel, int recordLength) {
+        this.file = file;
+        this.channel = channel;
+        this.recordLength = recordLength;
+        this.entrySize = 8 + recordLength;
+        this.leafCapacity = (PAGE_SIZE - PAGE_HEADER) / entrySize;
+        this.scratch = new byte[Math.max((leafCapacity + 1) * entrySize, (BRANCH_CAPACITY + 2) * 12)];
+    }
+
+    public static CustomerIndex open(Path file) throws IOException {
+        return open(file, CustomerRecord.RECORD_LENGTH);
+    }
+
+    public static CustomerIndex open(Path file, int recordLength) throws IOException {
+        if (recordLength <= 0 || (PAGE_SIZE - PAGE_HEADER) / (8 + recordLength) < 3) {
+            throw new IllegalArgumentException("Record length not supported by index page: " + recordLength);
+        }
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        CustomerIndex index = new CustomerIndex(file, channel, recordLength);
+        try {
+            if (channel.size() == 0) {
+                index.initialize();
+            } else {
+                index.recover();
+            }
+        } catch (IOException | RuntimeException e) {
+            index.close();
+            throw e;
+        }
+        return index;
+    }
+
+    // Builds a new index from a line sequential file sorted ascending on CUST-ID.
+    // The index is written beside the target and moved into place once durable.
+    public static CustomerIndex bulkLoad(Path sortedFile, Path indexFile) throws IOException {
+        Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".load");
+        Files.deleteIfExists(tmp);
+
+        try (CustomerIndex index = open(tmp);
+             BufferedReader reader = Files.newBufferedReader(sortedFile, StandardCharsets.ISO_8859_1)) {
+            index.load(reader);
+        }
+        Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return open(indexFile);
+    }
+
+    public long recordCount() {
+        return recordCount;
+    }
+
+    public int recordLength() {
+        return recordLength;
+    }
+
+    public int pageCount() {
+        return pageCount;
+    }
+
+    public int freePageCount() {
+        return freePages.cardinality() + pendingFree.cardinality();
+    }
+
+    public boolean get(long key, byte[] dst) {
+        int leaf = findLeaf(key);
+        if (leaf == 0) {
+            return false;
+        }
+        int pos = search(leaf, key);
+        if (pos < 0) {
+            return false;
+        }
+        buffer(leaf).get(entryOffset(leaf, pos) + 8, dst, 0, recordLength);
+        return true;
+    }
+
+    public byte[] get(long key) {
+        byte[] record = new byte[recordLength];
+        return get(key, record) ? record : null;
+    }
+
+    public boolean contains(long key) {
+        int leaf = findLeaf(key);
+        return leaf != 0 && search(leaf, key) >= 0;
+    }
+
+    // Visits records with fromKey <= key <= toKey in key order. The record array is reused.
+    public void scan(long fromKey, long toKey, RecordVisitor visitor) {
+        if (root != 0 && fromKey <= toKey) {
+            scanPage(root, height, fromKey, toKey, visitor, new byte[recordLength]);
+        }
+    }
+
+    public void put(long key, byte[] record) throws IOException {
+        if (record.length != recordLength) {
+            throw new IllegalArgumentException("Record length " + record.length + " does not match index record length " + recordLength);
+        }
+        if (root == 0) {
+            root = allocatePage(LEAF);
+            height = 1;
+        }
+        splitRight = 0;
+        int newRoot = insert(root, height, key, record);
+        if (splitRight != 0) {
+            int branch = allocatePage(BRANCH);
+            ByteBuffer buf = buffer(branch);
+            int base = pageOffset(branch);
+            buf.putShort(base + 2, (short) 1);
+            buf.putInt(base + PAGE_HEADER, newRoot);
+            buf.putLong(base + PAGE_HEADER + 4, splitKey);
+            buf.putInt(base + PAGE_HEADER + 12, splitRight);
+            newRoot = branch;
+            height++;
+            splitRight = 0;
+        }
+        root = newRoot;
+        dirty = true;
+    }
+
+    public void put(CustomerRecord record) throws IOException {
+        put(record.custId(), record.format().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    public boolean remove(long key) throws IOException {
+        if (!contains(key)) {
+            return false;
+        }
+        root = delete(root, height, key);
+        // Collapse a root left with a single child, and drop an empty root leaf
+        while (height > 1 && count(root) == 0) {
+            int child = childAt(root, 0);
+            release(root);
+            root = child;
+            height--;
+        }
+        if (height == 1 && count(root) == 0) {
+            release(root);
+            root = 0;
+            height = 0;
+        }
+        recordCount--;
+        dirty = true;
+        return true;
+    }
+
+    // Makes all changes since the last commit durable. Pages are copy-on-write, so a crash
+    // before the header flip leaves the previous committed tree intact.
+    public void commit() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        EtlEvents.CheckpointWritten event = new EtlEvents.CheckpointWritten();
+        event.begin();
+        for (int seg = dirtySegments.nextSetBit(0); seg >= 0; seg = dirtySegments.nextSetBit(seg + 1)) {
+            segments.get(seg).force();
+        }
+        dirtySegments.clear();
+
+        long seq = committedSeq + 1;
+        writeHeader(seq);
+        segments.get(0).force();
+
+        // The previous tree is no longer the recovery point, so the pages only it used can be reused
+        committedSeq = seq;
+        long writtenPages = txnPages.cardinality();
+        txnPages.clear();
+        freePages.or(pendingFree);
+        pendingFree.clear();
+        dirty = false;
+        EtlEvents.checkpoint(event, file.toString(), recordCount, writtenPages * PAGE_SIZE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (channel.isOpen() && !segments.isEmpty()) {
+                commit();
+            }
+        } finally {
+            segments.clear();
+            channel.close();
+        }
+    }
+
+    private void initialize() throws IOException {
+        pageCount = 1; // page 0 holds the two header slots
+        mapSegment(0);
+        committedSeq = 0;
+        dirty = true;
+        commit();
+    }
+
+    private void recover() throws IOException {
+        mapSegment(0);
+        ByteBuffer buf = segments.get(0);
+        long best = -1;
+        int bestSlot = -1;
+        for (int slot = 0; slot < 2; slot++) {
+            int off = slot * (PAGE_SIZE / 2);
+            if (buf.getLong(off) == MAGIC && buf.getLong(off + HEADER_LENGTH) == crc(buf, off)
+                    && buf.getLong(off + 8) > best) {
+                best = buf.getLong(off + 8);
+                bestSlot = slot;
+            }
+        }
+        if (bestSlot < 0) {
+            throw new IOException("No valid header found in customer index: " + file);
+        }
+
+        int off = bestSlot * (PAGE_SIZE / 2);
+        int storedLength = buf.getInt(off + 32);
+        if (storedLength != recordLength) {
+            throw new IOException("Customer index " + file + " has record length " + storedLength + ", expected " + recordLength);
+        }
+        committedSeq = best;
+        root = buf.getInt(off + 16);
+        pageCount = buf.getInt(off + 20);
+        recordCount = buf.getLong(off + 24);
+        height = buf.getInt(off + 36);
+        for (int seg = 1; seg <= (pageCount - 1) / PAGES_PER_SEGMENT; seg++) {
+            mapSegment(seg);
+        }
+
+        // The free list is not stored; any page the committed tree does not reach is free
+        BitSet reachable = new BitSet(pageCount);
+        reachable.set(0);
+        if (root != 0) {
+            markReachable(root, height, reachable);
+        }
+        freePages.set(1, pageCount);
+        freePages.andNot(reachable);
+    }
+
+    private void markReachable(int page, int level, BitSet reachable) {
+        reachable.set(page);
+        if (level == 1) {
+            return;
+        }
+        for (int i = 0, count = count(page); i <= count; i++) {
+            markReachable(childAt(page, i), level - 1, reachable);
+        }
+    }
+
+    private void writeHeader(long seq) {
+        ByteBuffer buf = segments.get(0);
+        int off = (int) (seq & 1) * (PAGE_SIZE / 2);
+        buf.putLong(off, MAGIC);
+        buf.putLong(off + 8, seq);
+        buf.putInt(off + 16, root);
+        buf.putInt(off + 20, pageCount);
+        buf.putLong(off + 24, recordCount);
+        buf.putInt(off + 32, recordLength);
+        buf.putInt(off + 36, height);
+        buf.putLong(off + HEADER_LENGTH, crc(buf, off));
+    }
+
+    private static long crc(ByteBuffer buf, int off) {
+        CRC32 crc = new CRC32();
+        crc.update(buf.duplicate().limit(off + HEADER_LENGTH).position(off));
+        return crc.getValue();
+    }
+
+    private void load(BufferedReader reader) throws IOException {
+        long[] firstKeys = new long[64];
+        int[] pages = new int[64];
+        int leaves = 0;
+        int perLeaf = Math.max(1, (int) (leafCapacity * LOAD_FACTOR));
+
+        byte[] record = new byte[recordLength];
+        long previous = -1;
+        int leaf = 0;
+        int count = 0;
+        String line;
+        int lineNo = 0;
+
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) {
+                continue;
+            }
+            long key = CustomerRecord.parseKey(line);
+            if (key <= previous) {
+                throw new IllegalArgumentException("Input not sorted by CUST-ID at line " + lineNo + ": " + key);
+            }
+            previous = key;
+
+            if (leaf == 0 || count == perLeaf) {
+                if (leaf != 0) {
+                    buffer(leaf).putShort(pageOffset(leaf) + 2, (short) count);
+                }
+                leaf = allocatePage(LEAF);
+                count = 0;
+                if (leaves == pages.length) {
+                    firstKeys = Arrays.copyOf(firstKeys, leaves * 2);
+                    pages = Arrays.copyOf(pages, leaves * 2);
+                }
+                firstKeys[leaves] = key;
+                pages[leaves++] = leaf;
+            }
+
+            Arrays.fill(record, (byte) ' ');
+            int len = Math.min(line.length(), recordLength);
+            for (int i = 0; i < len; i++) {
+                record[i] = (byte) line.charAt(i);
+            }
+            int off = entryOffset(leaf, count++);
+            ByteBuffer buf = buffer(leaf);
+            buf.putLong(off, key);
+            buf.put(off + 8, record, 0, recordLength);
+            recordCount++;
+        }
+        if (leaf == 0) {
+            return;
+        }
+        buffer(leaf).putShort(pageOffset(leaf) + 2, (short) count);
+
+        // Build branch levels bottom-up until a single root remains
+        int levelHeight = 1;
+        int perBranch = Math.max(2, (int) (BRANCH_CAPACITY * LOAD_FACTOR));
+        while (leaves > 1) {
+            int nodes = 0;
+            for (int i = 0; i < leaves; i += perBranch + 1) {
+                int n = Math.min(perBranch + 1, leaves - i);
+                int branch = allocatePage(BRANCH);
+                ByteBuffer buf = buffer(branch);
+                int base = pageOffset(branch);
+                buf.putShort(base + 2, (short) (n - 1));
+                buf.putInt(base + PAGE_HEADER, pages[i]);
+                for (int c = 1; c < n; c++) {
+                    buf.putLong(base + PAGE_HEADER + 4 + (c - 1) * 12, firstKeys[i + c]);
+                    buf.putInt(base + PAGE_HEADER + 12 + (c - 1) * 12, pages[i + c]);
+                }
+                firstKeys[nodes] = firstKeys[i];
+                pages[nodes++] = branch;
+            }
+            leaves = nodes;
+            levelHeight++;
+        }
+        root = pages[0];
+        height = levelHeight;
+        dirty = true;
+    }
+
+    private int findLeaf(long key) {
+        if (root == 0) {
+            return 0;
+        }
+        int page = root;
+        for (int level = height; level > 1; level--) {
+            page = childAt(page, childIndex(page, key));
+        }
+        return page;
+    }
+
+    private boolean scanPage(int page, int level, long from, long to, RecordVisitor visitor, byte[] record) {
+        ByteBuffer buf = buffer(page);
+        int count = count(page);
+        if (level == 1) {
+            int pos = search(page, from);
+            for (int i = pos < 0 ? -pos - 1 : pos; i < count; i++) {
+                int off = entryOffset(page, i);
+                long key = buf.getLong(off);
+                if (key > to) {
+                    return false;
+                }
+                buf.get(off + 8, record, 0, recordLength);
+                if (!visitor.visit(key, record)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int i = childIndex(page, from); i <= count; i++) {
+            if (i > 0 && keyAt(page, i - 1) > to) {
+                return false;
+            }
+            if (!scanPage(childAt(page, i), level - 1, from, to, visitor, record)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int insert(int page, int level, long key, byte[] record) throws IOException {
+        int p = writable(page);
+        ByteBuffer buf = buffer(p);
+        int base = pageOffset(p);
+        int count = count(p);
+
+        if (level == 1) {
+            int pos = search(p, key);
+            if (pos >= 0) {
+                buf.put(entryOffset(p, pos) + 8, record, 0, recordLength);
+                return p;
+            }
+            pos = -pos - 1;
+            recordCount++;
+            if (count < leafCapacity) {
+                int off = entryOffset(p, pos);
+                buf.put(off + entrySize, buf.duplicate(), off, (count - pos) * entrySize);
+                buf.putLong(off, key);
+                buf.put(off + 8, record, 0, recordLength);
+                buf.putShort(base + 2, (short) (count + 1));
+                return p;
+            }
+
+            // Full leaf: merge the new entry in scratch, then split it across two pages
+            int start = base + PAGE_HEADER;
+            buf.get(start, scratch, 0, pos * entrySize);
+            ByteBuffer.wrap(scratch).putLong(pos * entrySize, key);
+            System.arraycopy(record, 0, scratch, pos * entrySize + 8, recordLength);
+            buf.get(start + pos * entrySize, scratch, (pos + 1) * entrySize, (count - pos) * entrySize);
+
+            int total = count + 1;
+            int leftCount = total / 2;
+            int right = allocatePage(LEAF);
+            buf.put(start, scratch, 0, leftCount * entrySize);
+            buf.putShort(base + 2, (short) leftCount);
+            buffer(right).put(pageOffset(right) + PAGE_HEADER, scratch, leftCount * entrySize, (total - leftCount) * entrySize);
+            buffer(right).putShort(pageOffset(right) + 2, (short) (total - leftCount));
+            splitKey = ByteBuffer.wrap(scratch).getLong(leftCount * entrySize);
+            splitRight = right;
+            return p;
+        }
+
+        int idx = childIndex(p, key);
+        int child = childAt(p, idx);
+        int newChild = insert(child, level - 1, key, record);
+        if (newChild != child) {
+            buf.putInt(childOffset(p, idx), newChild);
+        }
+        if (splitRight == 0) {
+            return p;
+        }
+        long sepKey = splitKey;
+        int sepRight = splitRight;
+        splitRight = 0;
+
+        int keyOff = base + PAGE_HEADER + 4 + idx * 12;
+        if (count < BRANCH_CAPACITY) {
+            buf.put(keyOff + 12, buf.duplicate(), keyOff, (count - idx) * 12);
+            buf.putLong(keyOff, sepKey);
+            buf.putInt(keyOff + 8, sepRight);
+            buf.putShort(base + 2, (short) (count + 1));
+            return p;
+        }
+
+        // Full branch: scratch holds child0 followed by (key, child) pairs
+        ByteBuffer tmp = ByteBuffer.wrap(scratch);
+        int start = base + PAGE_HEADER;
+        buf.get(start, scratch, 0, 4 + idx * 12);
+        tmp.putLong(4 + idx * 12, sepKey);
+        tmp.putInt(4 + idx * 12 + 8, sepRight);
+        buf.get(keyOff, scratch, 4 + (idx + 1) * 12, (count - idx) * 12);
+
+        int total = count + 1;
+        int leftCount = total / 2;
+        int right = allocatePage(BRANCH);
+        buf.put(start, scratch, 0, 4 + leftCount * 12);
+        buf.putShort(base + 2, (short) leftCount);
+
+        // The middle key moves up; its child becomes child0 of the right page
+        int mid = 4 + leftCount * 12;
+        int rightCount = total - leftCount - 1;
+        buffer(right).put(pageOffset(right) + PAGE_HEADER, scratch, mid + 8, 4 + rightCount * 12);
+        buffer(right).putShort(pageOffset(right) + 2, (short) rightCount);
+        splitKey = tmp.getLong(mid);
+        splitRight = right;
+        return p;
+    }
+
+    // A child left under 1/4 full is merged with a neighbour when both fit in one page. Siblings too
+    // full to merge are left as they are rather than redistributed; the next bulk load repacks them.
+    private int delete(int page, int level, long key) throws IOException {
+        int p = writable(page);
+        ByteBuffer buf = buffer(p);
+        int count = count(p);
+        if (level == 1) {
+            int pos = search(p, key);
+            int off = entryOffset(p, pos);
+            buf.put(off, buf.duplicate(), off + entrySize, (count - pos - 1) * entrySize);
+            buf.putShort(pageOffset(p) + 2, (short) (count - 1));
+            return p;
+        }
+        int idx = childIndex(p, key);
+        int child = childAt(p, idx);
+        int newChild = delete(child, level - 1, key);
+        if (newChild != child) {
+            buf.putInt(childOffset(p, idx), newChild);
+        }
+        int capacity = level - 1 == 1 ? leafCapacity : BRANCH_CAPACITY;
+        if (count > 0 && count(newChild) < capacity / MERGE_THRESHOLD) {
+            int left = idx > 0 ? idx - 1 : 0;
+            mergeChildren(p, left, level - 1);
+        }
+        return p;
+    }
+
+    // Folds child left+1 into child left and drops the separator between them, if the result fits
+    private void mergeChildren(int parent, int left, int childLevel) throws IOException {
+        int leftPage = childAt(parent, left);
+        int rightPage = childAt(parent, left + 1);
+        int leftCount = count(leftPage);
+        int rightCount = count(rightPage);
+        if (childLevel == 1 ? leftCount + rightCount > leafCapacity
+                : leftCount + rightCount + 1 > BRANCH_CAPACITY) {
+            return;
+        }
+        int target = writable(leftPage);
+        ByteBuffer dst = buffer(target);
+        int dstBase = pageOffset(target) + PAGE_HEADER;
+        ByteBuffer src = buffer(rightPage);
+        int srcBase = pageOffset(rightPage) + PAGE_HEADER;
+        if (childLevel == 1) {
+            dst.put(dstBase + leftCount * entrySize, src, srcBase, rightCount * entrySize);
+            dst.putShort(pageOffset(target) + 2, (short) (leftCount + rightCount));
+        } else {
+            // The separator comes down as the key in front of the right page's first child
+            int at = dstBase + 4 + leftCount * 12;
+            dst.putLong(at, keyAt(parent, left));
+            dst.putInt(at + 8, src.getInt(srcBase));
+            dst.put(at + 12, src, srcBase + 4, rightCount * 12);
+            dst.putShort(pageOffset(target) + 2, (short) (leftCount + rightCount + 1));
+        }
+        release(rightPage);
+
+        ByteBuffer buf = buffer(parent);
+        int base = pageOffset(parent);
+        int count = count(parent);
+        buf.putInt(childOffset(parent, left), target);
+        int keyOff = base + PAGE_HEADER + 4 + left * 12;
+        buf.put(keyOff, buf.duplicate(), keyOff + 12, (count - left - 1) * 12);
+        buf.putShort(base + 2, (short) (count - 1));
+    }
+
+    // Leaf binary search; returns the entry index, or (-insertionPoint - 1) when absent
+    private int search(int page, long key) {
+        ByteBuffer buf = buffer(page);
+        int lo = 0;
+        int hi = count(page) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = buf.getLong(entryOffset(page, mid));
+            if (k < key) {
+                lo = mid + 1;
+            } else if (k > key) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -lo - 1;
+    }
+
+    // Number of separator keys <= key, i.e. the child that may hold it
+    private int childIndex(int page, long key) {
+        int lo = 0;
+        int hi = count(page);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keyAt(page, mid) <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private long keyAt(int page, int i) {
+        return buffer(page).getLong(pageOffset(page) + PAGE_HEADER + 4 + i * 12);
+    }
+
+    private int childAt(int page, int i) {
+        return buffer(page).getInt(childOffset(page, i));
+    }
+
+    private int childOffset(int page, int i) {
+        return pageOffset(page) + PAGE_HEADER + (i == 0 ? 0 : 4 + (i - 1) * 12 + 8);
+    }
+
+    private int count(int page) {
+        return buffer(page).getShort(pageOffset(page) + 2) & 0xFFFF;
+    }
+
+    private int entryOffset(int page, int i) {
+        return pageOffset(page) + PAGE_HEADER + i * entrySize;
+    }
+
+    // Pages written by the open transaction are modified in place; committed pages are copied
+    private int writable(int page) throws IOException {
+        if (txnPages.get(page)) {
+            return page;
+        }
+        int copy = allocatePage(buffer(page).get(pageOffset(page)));
+        buffer(copy).put(pageOffset(copy), buffer(page).duplicate(), pageOffset(page), PAGE_SIZE);
+        release(page);
+        return copy;
+    }
+
+    // A page the committed tree never saw is free at once; a committed page only after the next commit
+    private void release(int page) {
+        if (txnPages.get(page)) {
+            txnPages.clear(page);
+            freePages.set(page);
+        } else {
+            pendingFree.set(page);
+        }
+    }
+
+    private int allocatePage(byte type) throws IOException {
+        int page = freePages.nextSetBit(0);
+        if (page < 0) {
+            page = pageCount++;
+        } else {
+            freePages.clear(page);
+        }
+        int seg = page / PAGES_PER_SEGMENT;
+        if (seg == segments.size()) {
+            mapSegment(seg);
+        }
+        txnPages.set(page);
+        ByteBuffer buf = buffer(page);
+        int base = pageOffset(page);
+        buf.put(base, type);
+        buf.put(base + 1, (byte) 0);
+        buf.putShort(base + 2, (short) 0);
+        dirtySegments.set(seg);
+        return page;
+    }
+
+    private void mapSegment(int seg) throws IOException {
+        segments.add(channel.map(FileChannel.MapMode.READ_WRITE, seg * SEGMENT_SIZE, SEGMENT_SIZE));
+    }
+
+    private ByteBuffer buffer(int page) {
+        return segments.get(page / PAGES_PER_SEGMENT);
+    }
+
+    private static int pageOffset(int page) {
+        return (page % PAGES_PER_SEGMENT) * PAGE_SIZE;
+    }
+}
@@ -0,0 +1,174 @@
+package com.batch.etl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CustomerIndexTest {
+
+    private static final int RECORD_LENGTH = 58;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void matchesSortedMapAcrossPutsRemovesAndCommits() throws IOException {
+        TreeMap<Long, String> expected = new TreeMap<>();
+        Random random = new Random(42);
+        try (CustomerIndex index = CustomerIndex.open(dir.resolve("cust.idx"))) {
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < 2_000; i++) {
+                    long key = random.nextInt(20_000);
+                    if (random.nextInt(3) == 0) {
+                        assertEquals(expected.remove(key) != null, index.remove(key));
+                    } else {
+                        String record = record(key, "R" + round);
+                        expected.put(key, record);
+                        index.put(key, record.getBytes(StandardCharsets.ISO_8859_1));
+                    }
+                }
+                index.commit();
+                assertContents(expected, index);
+            }
+        }
+        try (CustomerIndex index = CustomerIndex.open(dir.resolve("cust.idx"))) {
+            assertContents(expected, index);
+        }
+    }
+
+    @Test
+    void rewritingCommittedRecordsReusesPages() throws IOException {
+        try (CustomerIndex index = CustomerIndex.open(dir.resolve("cust.idx"))) {
+            for (long key = 0; key < 5_000; key++) {
+                index.put(key, bytes(record(key, "V0")));
+            }
+            index.commit();
+            for (int version = 1; version <= 3; version++) {
+                rewriteAll(index, version);
+            }
+            int settled = index.pageCount();
+            for (int version = 4; version <= 50; version++) {
+                rewriteAll(index, version);
+            }
+            // Copy-on-write needs at most two generations of pages; every later commit runs on reused pages
+            assertEquals(settled, index.pageCount());
+            assertEquals(record(1234, "V50"), new String(index.get(1234), StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    @Test
+    void removingMostRecordsMergesPagesAndFreesThem() throws IOException {
+        try (CustomerIndex index = CustomerIndex.open(dir.resolve("cust.idx"))) {
+            for (long key = 0; key < 10_000; key++) {
+                index.put(key, bytes(record(key, "A")));
+            }
+            index.commit();
+            int pages = index.pageCount();
+            for (long key = 0; key < 10_000; key++) {
+                if (key % 100 != 0) {
+                    assertTrue(index.remove(key));
+                }
+            }
+            index.commit();
+            assertEquals(100, index.recordCount());
+            assertTrue(index.freePageCount() > pages * 9 / 10, "pages freed: " + index.freePageCount() + " of " + pages);
+
+            // Refilling the tree runs on the freed pages instead of growing the file
+            for (long key = 0; key < 10_000; key++) {
+                index.put(key, bytes(record(key, "B")));
+            }
+            index.commit();
+            assertTrue(index.pageCount() <= pages * 2, "pages " + index.pageCount() + " after refill, was " + pages);
+
+            for (long key = 0; key < 10_000; key++) {
+                index.remove(key);
+            }
+            assertEquals(0, index.recordCount());
+            assertNull(index.get(0));
+        }
+    }
+
+    @Test
+    void reopenFindsPagesTheCommittedTreeNoLongerUses() throws IOException {
+        Path file = dir.resolve("cust.idx");
+        int pages;
+        try (CustomerIndex index = CustomerIndex.open(file)) {
+            for (long key = 0; key < 3_000; key++) {
+                index.put(key, bytes(record(key, "A")));
+            }
+            index.commit();
+            for (long key = 0; key < 3_000; key++) {
+                index.put(key, bytes(record(key, "B")));
+            }
+            index.commit();
+            pages = index.pageCount();
+        }
+        try (CustomerIndex index = CustomerIndex.open(file)) {
+            assertTrue(index.freePageCount() > 0);
+            for (long key = 0; key < 3_000; key++) {
+                index.put(key, bytes(record(key, "C")));
+            }
+            index.commit();
+            assertEquals(pages, index.pageCount());
+            assertEquals(record(7, "C"), new String(index.get(7), StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    @Test
+    void bulkLoadsSortedFileAndScansRanges() throws IOException {
+        Path sorted = dir.resolve("CUSTOMER.DAT");
+        List<String> lines = new ArrayList<>();
+        for (long key = 10; key <= 50_000; key += 10) {
+            lines.add(record(key, "LOAD"));
+        }
+        Files.write(sorted, lines, StandardCharsets.ISO_8859_1);
+
+        try (CustomerIndex index = CustomerIndex.bulkLoad(sorted, dir.resolve("cust.idx"))) {
+            assertEquals(lines.size(), index.recordCount());
+            assertTrue(index.contains(25_000));
+            assertFalse(index.contains(25_001));
+            List<Long> keys = new ArrayList<>();
+            index.scan(995, 1_040, (key, record) -> keys.add(key));
+            assertEquals(List.of(1_000L, 1_010L, 1_020L, 1_030L, 1_040L), keys);
+        }
+    }
+
+    @Test
+    void bulkLoadRejectsUnsortedInput() throws IOException {
+        Path unsorted = dir.resolve("CUSTOMER.DAT");
+        Files.write(unsorted, List.of(record(20, "A"), record(10, "B")), StandardCharsets.ISO_8859_1);
+        assertThrows(IllegalArgumentException.class, () -> CustomerIndex.bulkLoad(unsorted, dir.resolve("cust.idx")));
+    }
+
+    private static void rewriteAll(CustomerIndex index, int version) throws IOException {
+        for (long key = 0; key < 5_000; key++) {
+            index.put(key, bytes(record(key, "V" + version)));
+        }
+        index.commit();
+    }
+
+    private static void assertContents(TreeMap<Long, String> expected, CustomerIndex index) {
+        assertEquals(expected.size(), index.recordCount());
+        List<Long> scanned = new ArrayList<>();
+        index.scan(Long.MIN_VALUE, Long.MAX_VALUE, (key, record) -> {
+            assertEquals(expected.get(key), new String(record, StandardCharsets.ISO_8859_1));
+            scanned.add(key);
+            return true;
+        });
+        assertEquals(new ArrayList<>(expected.keySet()), scanned);
+    }
+
+    private static String record(long key, String name) {
+        return String.format("%08d%-30.30s%c%09d%09d%c", key, name, 'C', 100_00, 5_000_00, 'A');
+    }
+
+    private static byte[] bytes(String record) {
+        assertEquals(RECORD_LENGTH, record.length());
+        return record.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -5,6 +5,7 @@ import java.util.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 public class DataModel {
     // Banking input file record structure (from COBOL FD)
@@ -25,12 +26,10 @@ public class DataModel {
                 String acctNum = line.substring(0, 12).trim();
                 String transactionType = line.substring(12, 20).trim();
                 String transactionDate = line.substring(20, 28).trim();
-                String amountStr = line.substring(28, 37).trim();
-                String balanceStr = line.substring(37, 49).trim();
                 
-                // Convert numeric strings to BigDecimal
-                BigDecimal transactionAmount = new BigDecimal(amountStr).divide(BigDecimal.valueOf(100));
-                BigDecimal currentBal = new BigDecimal(balanceStr).divide(BigDecimal.valueOf(100));
+                // Convert numeric fields to BigDecimal
+                BigDecimal transactionAmount = impliedCents(line, 28, 37);
+                BigDecimal currentBal = impliedCents(line, 37, 49);
                 
                 return new InputRecord(acctNum, transactionType, transactionDate, transactionAmount, currentBal);
             } catch (NumberFormatException e) {
@@ -46,8 +45,38 @@ public class DataModel {
         
         @Override
         public String toString() {
-            return String.format("InputRecord[account=%s, type=%s, date=%s, amount=%.2f, balance=%.2f]", 
-                accountNumber, transType, transDate, amount, currentBalance);
+            StringBuilder out = new StringBuilder(96).append("InputRecord[account=").append(accountNumber)
+                .append(", type=").append(transType).append(", date=").append(transDate).append(", amount=");
+            appendAmount(out, amount, 0).append(", balance=");
+            return appendAmount(out, currentBalance, 0).append(']').toString();
+        }
+
+        // PIC 9(n)V99 field: the same value and scale as new BigDecimal(text).divide(100), read straight from
+        // the line; anything but plain digits takes that slow path so its errors are unchanged
+        private static BigDecimal impliedCents(String line, int start, int end) {
+            int from = start;
+            int to = Math.min(end, line.length());
+            while (from < to && line.charAt(from) <= ' ') {
+                from++;
+            }
+            while (to > from && line.charAt(to - 1) <= ' ') {
+                to--;
+            }
+            if (from == to || to - from > 18) {
+                return new BigDecimal(line.substring(start, end).trim()).divide(BigDecimal.valueOf(100));
+            }
+            long cents = 0;
+            for (int i = from; i < to; i++) {
+                char c = line.charAt(i);
+                if (c < '0' || c > '9') {
+                    return new BigDecimal(line.substring(start, end).trim()).divide(BigDecimal.valueOf(100));
+                }
+                cents = cents * 10 + (c - '0');
+            }
+            if (cents % 100 == 0) {
+                return BigDecimal.valueOf(cents / 100);
+            }
+            return cents % 10 == 0 ? BigDecimal.valueOf(cents / 10, 1) : BigDecimal.valueOf(cents, 2);
         }
     }
 
@@ -61,8 +90,11 @@ public class DataModel {
         public String format() {
             // Format according to COBOL output structure
             // PIC X(12) + PIC X(8) + PIC 9(12)V99 + PIC 9(9)V99
-            return String.format("%-12.12s%-8.8s%014.2f%011.2f",
-                accountNumber, transType, newBalance, amount);
+            StringBuilder out = new StringBuilder(45);
+            appendText(out, accountNumber, 12);
+            appendText(out, transType, 8);
+            appendAmount(out, newBalance, 14);
+            return appendAmount(out, amount, 11).toString();
         }
         
         @Override
@@ -80,7 +112,15 @@ public class DataModel {
     ) {
         public String format() {
             // Format for error file (80 character width)
-            return String.format("%-80s", originalRecord != null ? originalRecord : reason);
+            String text = String.valueOf(originalRecord != null ? originalRecord : reason);
+            if (text.length() >= 80) {
+                return text;
+            }
+            StringBuilder out = new StringBuilder(80).append(text);
+            while (out.length() < 80) {
+                out.append(' ');
+            }
+            return out.toString();
         }
         
         @Override
@@ -90,17 +130,113 @@ public class DataModel {
         }
     }
 
+    // Customer master record structure (from COBOL FD CUSTOMER-RECORD)
+    public record CustomerRecord(
+        long custId,            // PIC 9(8) - Customer id
+        String name,            // PIC X(30) - Customer name
+        char accountType,       // PIC X(1) - C/S/B
+        BigDecimal balance,     // PIC 9(7)V99 - Current balance
+        BigDecimal creditLimit, // PIC 9(7)V99 - Credit limit
+        char status             // PIC X(1) - A/I/S
+    ) {
+        public static final int RECORD_LENGTH = 58;
+        public static final int KEY_LENGTH = 8;
+
+        public static CustomerRecord parse(String line) {
+            if (line == null || line.length() < KEY_LENGTH) {
+                throw new IllegalArgumentException("Invalid record length: expected " + RECORD_LENGTH + " characters");
+            }
+            // LINE SEQUENTIAL files drop trailing spaces, so pad back to the FD width
+            String rec = line.length() < RECORD_LENGTH
+                ? String.format("%-" + RECORD_LENGTH + "s", line) : line;
+
+            try {
+                long id = parseKey(rec);
+                String custName = rec.substring(8, 38).trim();
+                char type = rec.charAt(38);
+                BigDecimal bal = new BigDecimal(rec.substring(39, 48).trim()).movePointLeft(2);
+                BigDecimal limit = new BigDecimal(rec.substring(48, 57).trim()).movePointLeft(2);
+                char custStatus = rec.charAt(57);
+                return new CustomerRecord(id, custName, type, bal, limit, custStatus);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid numeric format in record: " + line, e);
+            }
+        }
+
+        // CUST-ID is the leading PIC 9(8) field
+        public static long parseKey(CharSequence line) {
+            if (line.length() < KEY_LENGTH) {
+                throw new IllegalArgumentException("Record too short for CUST-ID: " + line);
+            }
+            long key = 0;
+            for (int i = 0; i < KEY_LENGTH; i++) {
+                char c = line.charAt(i);
+                if (c < '0' || c > '9') {
+                    throw new IllegalArgumentException("Non-numeric CUST-ID in record: " + line);
+                }
+                key = key * 10 + (c - '0');
+            }
+            return key;
+        }
+
+        public String format() {
+            return String.format("%08d%-30.30s%c%09d%09d%c",
+                custId, name, accountType,
+                balance.movePointRight(2).longValueExact(),
+                creditLimit.movePointRight(2).longValueExact(),
+                status);
+        }
+    }
+
+    // The record path writes fields itself rather than through String.format, which builds a Formatter and
+    // parses the pattern on every call; output matches the %-N.Ns and %0N.2f conversions with a '.' separator
+
+    // %-N.Ns: left-justified, cut to width
+    private static StringBuilder appendText(StringBuilder out, String value, int width) {
+        String text = String.valueOf(value);
+        int length = Math.min(text.length(), width);
+        out.append(text, 0, length);
+        for (int i = length; i < width; i++) {
+            out.append(' ');
+        }
+        return out;
+    }
+
+    // %0N.2f, or %.2f for a width of 0: rounded half-up to cents, zero-padded after the sign
+    private static StringBuilder appendAmount(StringBuilder out, BigDecimal value, int width) {
+        if (value == null) {
+            // Formatter cuts "null" to the precision too
+            for (int i = 2; i < width; i++) {
+                out.append(' ');
+            }
+            return out.append("nu");
+        }
+        String digits = value.setScale(2, RoundingMode.HALF_UP).abs().toPlainString();
+        int length = digits.length();
+        if (value.signum() < 0) {
+            out.append('-');
+            length++;
+        }
+        for (int i = length; i < width; i++) {
+            out.append('0');
+        }
+        return out.append(digits);
+    }
+
     // Processing summary record
     public record SummaryRecord(
         int totalRecords,
         int validRecords,
         int rejectRecords,
+        int duplicateRecords,
+        int unchangedRecords,   // Delta mode: identical to the previous run
+        int deletedRecords,     // Delta mode: keys missing since the previous run
         BigDecimal totalAmount,
         LocalDate processTime
     ) {
         public String format() {
-            return String.format("SUMMARY: Total=%d, Valid=%d, Rejected=%d, TotalAmount=%.2f, Time=%s",
-                totalRecords, validRecords, rejectRecords, totalAmount, 
+            return String.format("SUMMARY: Total=%d, Valid=%d, Rejected=%d, Duplicates=%d, Unchanged=%d, Deleted=%d, TotalAmount=%.2f, Time=%s",
+                totalRecords, validRecords, rejectRecords, duplicateRecords, unchangedRecords, deletedRecords, totalAmount, 
                 processTime.format(DateTimeFormatter.ISO_LOCAL_DATE));
         }
     }
@@ -0,0 +1,291 @@
+// Record-level delta detection against the previous run's fingerprint store
+package com.batch.etl;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// The new store is written beside the old one by finish() and only replaces it on publish(), which the
+// caller runs once every output of the run has been closed. Closing without publishing keeps the old store.
+public class DeltaTracker implements Closeable {
+
+    public enum Change { INSERTED, CHANGED, UNCHANGED }
+
+    private static final int MAGIC = 0x44454C54; // "DELT"
+
+    private final Path storePath;
+    private final Path pendingPath;
+    private final int keyLength;
+
+    // Previous run, sorted by (keyHash, recordHash)
+    private final Entries previous;
+    private final BitSet matched;
+
+    // Current run, in arrival order until finish()
+    private final Entries current;
+    private final byte[] key;
+
+    private int inserted;
+    private int changed;
+    private int unchanged;
+    private int deleted;
+    private boolean prepared;
+    private EtlEvents.CheckpointWritten checkpoint;
+
+    private DeltaTracker(Path storePath, int keyLength, Entries previous) {
+        this.storePath = storePath;
+        this.pendingPath = storePath.resolveSibling(storePath.getFileName() + ".tmp");
+        this.keyLength = keyLength;
+        this.previous = previous;
+        this.matched = new BitSet(previous.size);
+        this.current = new Entries(keyLength, 1024);
+        this.key = new byte[keyLength];
+    }
+
+    // Loads the previous run's fingerprints; a missing store makes every record an insert
+    public static DeltaTracker open(Path storePath, int keyLength) throws IOException {
+        if (!Files.exists(storePath)) {
+            return new DeltaTracker(storePath, keyLength, new Entries(keyLength, 0));
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(storePath)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a fingerprint store: " + storePath);
+            }
+            int storedKeyLength = in.readInt();
+            if (storedKeyLength != keyLength) {
+                throw new IOException("Fingerprint store " + storePath + " has key length " + storedKeyLength + ", expected " + keyLength);
+            }
+            int size = in.readInt();
+            Entries entries = new Entries(keyLength, size);
+            byte[] buf = new byte[keyLength];
+            for (int i = 0; i < size; i++) {
+                long keyHash = in.readLong();
+                long recordHash = in.readLong();
+                in.readFully(buf);
+                entries.add(keyHash, recordHash, buf);
+            }
+            return new DeltaTracker(storePath, keyLength, entries);
+        }
+    }
+
+    public Change classify(String record) {
+        Arrays.fill(key, (byte) ' ');
+        int len = Math.min(keyLength, record.length());
+        for (int i = 0; i < len; i++) {
+            key[i] = (byte) record.charAt(i);
+        }
+        long keyHash = DuplicateFilter.hash(record, 0, len);
+        long recordHash = DuplicateFilter.hash(record, 0, record.length());
+        current.add(keyHash, recordHash, key);
+
+        boolean keyKnown = false;
+        for (int i = previous.lowerBound(keyHash); i < previous.size && previous.keyHashes[i] == keyHash; i++) {
+            if (!previous.keyEquals(i, key)) {
+                continue;
+            }
+            keyKnown = true;
+            if (previous.recordHashes[i] == recordHash && !matched.get(i)) {
+                matched.set(i);
+                unchanged++;
+                return Change.UNCHANGED;
+            }
+        }
+        if (keyKnown) {
+            changed++;
+            return Change.CHANGED;
+        }
+        inserted++;
+        return Change.INSERTED;
+    }
+
+    // Writes keys that disappeared since the previous run, then writes this run's store for publish()
+    public void finish(BufferedWriter deletedWriter) throws IOException {
+        current.sort();
+
+        int lastDeleted = -1;
+        for (int i = matched.nextClearBit(0); i < previous.size; i = matched.nextClearBit(i + 1)) {
+            if (lastDeleted >= 0 && previous.keyHashes[lastDeleted] == previous.keyHashes[i]
+                    && previous.keyEquals(i, previous.keys, lastDeleted * keyLength)) {
+                continue;
+            }
+            if (!current.containsKey(previous.keyHashes[i], previous.keys, i * keyLength)) {
+                FileProcessor.writeLine(deletedWriter, new String(previous.keys, i * keyLength, keyLength, StandardCharsets.ISO_8859_1));
+                deleted++;
+                lastDeleted = i;
+            }
+        }
+        save();
+    }
+
+    // Makes this run the baseline for the next one. Only call once every output writer has closed
+    // cleanly; records in an output that failed to reach disk would otherwise count as unchanged.
+    public void publish() throws IOException {
+        if (!prepared) {
+            throw new IllegalStateException("Fingerprint store " + storePath + " was not finished");
+        }
+        Files.move(pendingPath, storePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        prepared = false;
+        EtlEvents.checkpoint(checkpoint, storePath.toString(), current.size, 12L + (16L + keyLength) * current.size);
+    }
+
+    // Drops a store that was finished but never published, leaving the previous run's store in place
+    @Override
+    public void close() throws IOException {
+        prepared = false;
+        Files.deleteIfExists(pendingPath);
+    }
+
+    public int inserted() {
+        return inserted;
+    }
+
+    public int changed() {
+        return changed;
+    }
+
+    public int unchanged() {
+        return unchanged;
+    }
+
+    public int deleted() {
+        return deleted;
+    }
+
+    private void save() throws IOException {
+        checkpoint = new EtlEvents.CheckpointWritten();
+        checkpoint.begin();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(pendingPath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(keyLength);
+            out.writeInt(current.size);
+            for (int i = 0; i < current.size; i++) {
+                out.writeLong(current.keyHashes[i]);
+                out.writeLong(current.recordHashes[i]);
+                out.write(current.keys, i * keyLength, keyLength);
+            }
+        }
+        prepared = true;
+    }
+
+    // Parallel primitive arrays: 16 bytes of hashes plus the raw key per record
+    private static final class Entries {
+        private final int keyLength;
+        private long[] keyHashes;
+        private long[] recordHashes;
+        private byte[] keys;
+        private int size;
+
+        Entries(int keyLength, int capacity) {
+            this.keyLength = keyLength;
+            int cap = Math.max(16, capacity);
+            this.keyHashes = new long[cap];
+            this.recordHashes = new long[cap];
+            this.keys = new byte[cap * keyLength];
+        }
+
+        void add(long keyHash, long recordHash, byte[] key) {
+            if (size == keyHashes.length) {
+                int cap = size * 2;
+                keyHashes = Arrays.copyOf(keyHashes, cap);
+                recordHashes = Arrays.copyOf(recordHashes, cap);
+                keys = Arrays.copyOf(keys, cap * keyLength);
+            }
+            keyHashes[size] = keyHash;
+            recordHashes[size] = recordHash;
+            System.arraycopy(key, 0, keys, size * keyLength, keyLength);
+            size++;
+        }
+
+        int lowerBound(long keyHash) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keyHashes[mid] < keyHash) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        boolean keyEquals(int i, byte[] key) {
+            return keyEquals(i, key, 0);
+        }
+
+        boolean keyEquals(int i, byte[] other, int otherOffset) {
+            return Arrays.equals(keys, i * keyLength, (i + 1) * keyLength, other, otherOffset, otherOffset + keyLength);
+        }
+
+        boolean containsKey(long keyHash, byte[] other, int otherOffset) {
+            for (int i = lowerBound(keyHash); i < size && keyHashes[i] == keyHash; i++) {
+                if (keyEquals(i, other, otherOffset)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void sort() {
+            quickSort(0, size - 1);
+        }
+
+        private void quickSort(int lo, int hi) {
+            while (hi - lo > 16) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(mid, lo) < 0) swap(mid, lo);
+                if (compare(hi, lo) < 0) swap(hi, lo);
+                if (compare(hi, mid) < 0) swap(hi, mid);
+                long pivotKey = keyHashes[mid];
+                long pivotRecord = recordHashes[mid];
+                int i = lo;
+                int j = hi;
+                while (i <= j) {
+                    while (compare(i, pivotKey, pivotRecord) < 0) i++;
+                    while (compare(j, pivotKey, pivotRecord) > 0) j--;
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                // Recurse into the smaller half to bound stack depth
+                if (j - lo < hi - i) {
+                    quickSort(lo, j);
+                    lo = i;
+                } else {
+                    quickSort(i, hi);
+                    hi = j;
+                }
+            }
+            for (int i = lo + 1; i <= hi; i++) {
+                for (int j = i; j > lo && compare(j, j - 1) < 0; j--) {
+                    swap(j, j - 1);
+                }
+            }
+        }
+
+        private int compare(int a, int b) {
+            return compare(a, keyHashes[b], recordHashes[b]);
+        }
+
+        private int compare(int a, long keyHash, long recordHash) {
+            int c = Long.compare(keyHashes[a], keyHash);
+            return c != 0 ? c : Long.compare(recordHashes[a], recordHash);
+        }
+
+        private void swap(int a, int b) {
+            long k = keyHashes[a];
+            keyHashes[a] = keyHashes[b];
+            keyHashes[b] = k;
+            long r = recordHashes[a];
+            recordHashes[a] = recordHashes[b];
+            recordHashes[b] = r;
+            for (int i = 0; i < keyLength; i++) {
+                byte t = keys[a * keyLength + i];
+                keys[a * keyLength + i] = keys[b * keyLength + i];
+                keys[b * keyLength + i] = t;
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.batch.etl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.file.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DeltaTrackerTest {
+
+    private static final int KEY_LENGTH = 12;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void classifiesAgainstThePublishedRun() throws IOException {
+        Path store = dir.resolve("fingerprints.dat");
+        run(store, true, "000000000001A", "000000000002B");
+
+        try (DeltaTracker delta = DeltaTracker.open(store, KEY_LENGTH)) {
+            assertEquals(DeltaTracker.Change.UNCHANGED, delta.classify("000000000001A"));
+            assertEquals(DeltaTracker.Change.CHANGED, delta.classify("000000000002C"));
+            assertEquals(DeltaTracker.Change.INSERTED, delta.classify("000000000003D"));
+            StringWriter deleted = new StringWriter();
+            delta.finish(new BufferedWriter(deleted));
+            assertEquals(0, delta.deleted());
+        }
+    }
+
+    @Test
+    void keepsThePreviousStoreUntilPublished() throws IOException {
+        Path store = dir.resolve("fingerprints.dat");
+        run(store, true, "000000000001A");
+        byte[] baseline = Files.readAllBytes(store);
+
+        // A run whose outputs failed to close finishes its store but never publishes it
+        run(store, false, "000000000001B", "000000000002C");
+        assertArrayEquals(baseline, Files.readAllBytes(store));
+        assertFalse(Files.exists(dir.resolve("fingerprints.dat.tmp")));
+
+        try (DeltaTracker delta = DeltaTracker.open(store, KEY_LENGTH)) {
+            assertEquals(DeltaTracker.Change.CHANGED, delta.classify("000000000001B"));
+            assertEquals(DeltaTracker.Change.INSERTED, delta.classify("000000000002C"));
+        }
+    }
+
+    @Test
+    void publishRequiresFinish() throws IOException {
+        try (DeltaTracker delta = DeltaTracker.open(dir.resolve("fingerprints.dat"), KEY_LENGTH)) {
+            delta.classify("000000000001A");
+            assertThrows(IllegalStateException.class, delta::publish);
+        }
+    }
+
+    private static void run(Path store, boolean publish, String... records) throws IOException {
+        try (DeltaTracker delta = DeltaTracker.open(store, KEY_LENGTH);
+             BufferedWriter deleted = new BufferedWriter(new StringWriter())) {
+            for (String record : records) {
+                delta.classify(record);
+            }
+            delta.finish(deleted);
+            if (publish) {
+                delta.publish();
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+// Duplicate record detection for the ingest stage
+package com.batch.etl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class DuplicateFilter implements Closeable {
+
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+    private static final int TAIL_SIZE = 1024;
+
+    private final ScalableBloomFilter bloom = new ScalableBloomFilter(INITIAL_CAPACITY, FALSE_POSITIVE_RATE);
+
+    // Fingerprints of every record seen, kept as sorted runs plus a small unsorted tail, each with the
+    // byte offset of the record's line in the input. Unseen records only append here; the runs are
+    // searched only for Bloom filter positives, and a fingerprint match is confirmed by re-reading that line.
+    private final List<Run> runs = new ArrayList<>();
+    private final long[] tailFingerprints = new long[TAIL_SIZE];
+    private final long[] tailOffsets = new long[TAIL_SIZE];
+    private int tailSize;
+    private final InputLines lines;
+
+    private final int keyLength;
+    private long duplicates;
+    private long probableDuplicates;
+    private long collisions;
+
+    // input is the file the records are read from; it must not change while the filter is in use
+    public DuplicateFilter(int keyLength, Path input) throws IOException {
+        this.keyLength = keyLength;
+        this.lines = new InputLines(input);
+    }
+
+    // Returns true when an identical record (same key and content) was already seen. record is the trimmed
+    // line starting at byte offset lineStart of the input.
+    // Blank records are never duplicates, so each one still reaches parsing and is rejected there.
+    public boolean isDuplicate(CharSequence record, long lineStart) throws IOException {
+        if (record.length() == 0) {
+            return false;
+        }
+        int keyEnd = Math.min(keyLength, record.length());
+        long keyHash = hash(record, 0, keyEnd);
+        long recordHash = fingerprint(record, keyEnd, keyHash);
+
+        if (bloom.mightContain(keyHash, recordHash | 1)) {
+            probableDuplicates++;
+            if (containsExact(recordHash, record)) {
+                duplicates++;
+                return true;
+            }
+        }
+        bloom.add(keyHash, recordHash | 1);
+        append(recordHash, lineStart);
+        return false;
+    }
+
+    public long duplicates() {
+        return duplicates;
+    }
+
+    public long probableDuplicates() {
+        return probableDuplicates;
+    }
+
+    // Distinct records that shared a 64-bit fingerprint with an earlier one
+    public long collisions() {
+        return collisions;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lines.close();
+    }
+
+    // 64-bit hash of the whole record; package-private so tests can force collisions
+    long fingerprint(CharSequence record, int keyEnd, long keyHash) {
+        return mix(hash(record, keyEnd, record.length()) ^ keyHash * 0x9E3779B97F4A7C15L);
+    }
+
+    private boolean containsExact(long fingerprint, CharSequence record) throws IOException {
+        boolean fingerprintSeen = false;
+        for (int i = 0; i < tailSize; i++) {
+            if (tailFingerprints[i] == fingerprint) {
+                if (lines.matches(tailOffsets[i], record)) {
+                    return true;
+                }
+                fingerprintSeen = true;
+            }
+        }
+        for (Run run : runs) {
+            for (int i = run.lowerBound(fingerprint); i < run.fingerprints.length && run.fingerprints[i] == fingerprint; i++) {
+                if (lines.matches(run.offsets[i], record)) {
+                    return true;
+                }
+                fingerprintSeen = true;
+            }
+        }
+        if (fingerprintSeen) {
+            collisions++;
+        }
+        return false;
+    }
+
+    private void append(long fingerprint, long offset) {
+        tailFingerprints[tailSize] = fingerprint;
+        tailOffsets[tailSize++] = offset;
+        if (tailSize < TAIL_SIZE) {
+            return;
+        }
+        Run run = Run.sorted(tailFingerprints, tailOffsets, TAIL_SIZE);
+        tailSize = 0;
+
+        // Merge while the previous run is no more than twice as large, keeping O(log n) runs
+        while (!runs.isEmpty() && runs.get(runs.size() - 1).fingerprints.length <= run.fingerprints.length * 2) {
+            run = Run.merge(runs.remove(runs.size() - 1), run);
+        }
+        runs.add(run);
+    }
+
+    // FNV-1a over the chars followed by a 64-bit finalizer
+    static long hash(CharSequence s, int from, int to) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = from; i < to; i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // Fingerprints in ascending order with the input offset of each record alongside
+    private static final class Run {
+        final long[] fingerprints;
+        final long[] offsets;
+
+        Run(long[] fingerprints, long[] offsets) {
+            this.fingerprints = fingerprints;
+            this.offsets = offsets;
+        }
+
+        static Run sorted(long[] fingerprints, long[] offsets, int size) {
+            Run run = new Run(Arrays.copyOf(fingerprints, size), Arrays.copyOf(offsets, size));
+            run.sort(0, size - 1);
+            return run;
+        }
+
+        private void sort(int lo, int hi) {
+            while (hi - lo > 16) {
+                long pivot = fingerprints[(lo + hi) >>> 1];
+                int i = lo;
+                int j = hi;
+                while (i <= j) {
+                    while (fingerprints[i] < pivot) i++;
+                    while (fingerprints[j] > pivot) j--;
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                // Recurse into the smaller half to bound stack depth
+                if (j - lo < hi - i) {
+                    sort(lo, j);
+                    lo = i;
+                } else {
+                    sort(i, hi);
+                    hi = j;
+                }
+            }
+            for (int i = lo + 1; i <= hi; i++) {
+                for (int j = i; j > lo && fingerprints[j] < fingerprints[j - 1]; j--) {
+                    swap(j, j - 1);
+                }
+            }
+        }
+
+        private void swap(int a, int b) {
+            long f = fingerprints[a];
+            fingerprints[a] = fingerprints[b];
+            fingerprints[b] = f;
+            long o = offsets[a];
+            offsets[a] = offsets[b];
+            offsets[b] = o;
+        }
+
+        static Run merge(Run a, Run b) {
+            int n = a.fingerprints.length + b.fingerprints.length;
+            Run out = new Run(new long[n], new long[n]);
+            int i = 0, j = 0, k = 0;
+            while (i < a.fingerprints.length && j < b.fingerprints.length) {
+                if (a.fingerprints[i] <= b.fingerprints[j]) {
+                    out.fingerprints[k] = a.fingerprints[i];
+                    out.offsets[k++] = a.offsets[i++];
+                } else {
+                    out.fingerprints[k] = b.fingerprints[j];
+                    out.offsets[k++] = b.offsets[j++];
+                }
+            }
+            while (i < a.fingerprints.length) {
+                out.fingerprints[k] = a.fingerprints[i];
+                out.offsets[k++] = a.offsets[i++];
+            }
+            while (j < b.fingerprints.length) {
+                out.fingerprints[k] = b.fingerprints[j];
+                out.offsets[k++] = b.offsets[j++];
+            }
+            return out;
+        }
+
+        int lowerBound(long fingerprint) {
+            int lo = 0;
+            int hi = fingerprints.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (fingerprints[mid] < fingerprint) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    // Reads single lines back from the input by byte offset, to confirm a fingerprint match against the
+    // earlier record's text. Only Bloom filter positives get here, so nothing is copied for unseen records.
+    private static final class InputLines implements Closeable {
+        private static final int READ_SIZE = 8 * 1024;
+
+        private final FileChannel channel;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_SIZE);
+        private ByteBuffer line = ByteBuffer.allocate(256);
+        private CharBuffer chars = CharBuffer.allocate(256);
+        // Same decoding as LineReader, which already read every stored line without error
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+        InputLines(Path input) throws IOException {
+            this.channel = FileChannel.open(input, StandardOpenOption.READ);
+        }
+
+        // True when the line at offset, trimmed as RecordPipeline trims it, equals record
+        boolean matches(long offset, CharSequence record) throws IOException {
+            CharBuffer text = lineAt(offset);
+            int start = text.position();
+            int end = text.limit();
+            while (start < end && text.get(start) <= ' ') {
+                start++;
+            }
+            while (end > start && text.get(end - 1) <= ' ') {
+                end--;
+            }
+            if (end - start != record.length()) {
+                return false;
+            }
+            for (int i = 0; i < record.length(); i++) {
+                if (text.get(start + i) != record.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // The line's bytes up to its terminator (\n, \r or end of file), decoded into a reused buffer
+        private CharBuffer lineAt(long offset) throws IOException {
+            line.clear();
+            long position = offset;
+            while (true) {
+                readBuffer.clear();
+                int n = channel.read(readBuffer, position);
+                if (n <= 0) {
+                    break;
+                }
+                readBuffer.flip();
+                int end = 0;
+                while (end < n && readBuffer.get(end) != '\n' && readBuffer.get(end) != '\r') {
+                    end++;
+                }
+                append(readBuffer.limit(end));
+                if (end < n) {
+                    break;
+                }
+                position += n;
+            }
+            line.flip();
+            if (chars.capacity() < line.remaining()) {
+                chars = CharBuffer.allocate(Integer.highestOneBit(line.remaining()) << 1);
+            }
+            chars.clear();
+            decoder.reset();
+            CoderResult result = decoder.decode(line, chars, true);
+            if (result.isError()) {
+                result.throwException();
+            }
+            decoder.flush(chars);
+            return chars.flip();
+        }
+
+        private void append(ByteBuffer bytes) {
+            if (line.remaining() < bytes.remaining()) {
+                int needed = line.position() + bytes.remaining();
+                line = ByteBuffer.allocate(Integer.highestOneBit(needed) << 1).put(line.flip());
+            }
+            line.put(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
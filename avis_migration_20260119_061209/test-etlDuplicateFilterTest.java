@@ -0,0 +1,117 @@
+package com.batch.etl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DuplicateFilterTest {
+
+    private static final int KEY_LENGTH = 12;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void dropsRepeatsOfIdenticalRecordsOnly() throws IOException {
+        List<String> lines = new ArrayList<>();
+        // Enough distinct records to push the first ones out of the tail and into merged runs
+        for (int i = 0; i < 20_000; i++) {
+            lines.add(record(i, 100));
+        }
+        for (int i = 0; i < 20_000; i += 7) {
+            lines.add(record(i, 100));
+            lines.add(record(i, 101));
+        }
+        Path input = input(lines, "\n");
+        try (DuplicateFilter filter = new DuplicateFilter(KEY_LENGTH, input)) {
+            List<Boolean> duplicate = admit(filter, input);
+            for (int i = 0; i < 20_000; i++) {
+                assertFalse(duplicate.get(i), "record " + i);
+            }
+            for (int i = 20_000; i < lines.size(); i += 2) {
+                assertTrue(duplicate.get(i), "repeat at line " + i);
+                assertFalse(duplicate.get(i + 1), "changed amount at line " + (i + 1));
+            }
+            assertEquals(2_858, filter.duplicates());
+        }
+    }
+
+    @Test
+    void keepsDistinctRecordsThatShareAFingerprint() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            lines.add(record(i % 10, i));
+        }
+        lines.add(record(3, 3));
+        lines.add(record(9, 2_999));
+        Path input = input(lines, "\n");
+        // Every record with the same key collides, so only the content comparison can tell them apart
+        try (DuplicateFilter filter = new DuplicateFilter(KEY_LENGTH, input) {
+            @Override
+            long fingerprint(CharSequence record, int keyEnd, long keyHash) {
+                return keyHash;
+            }
+        }) {
+            List<Boolean> duplicate = admit(filter, input);
+            assertFalse(duplicate.subList(0, 3_000).contains(true));
+            assertEquals(List.of(true, true), duplicate.subList(3_000, 3_002));
+            assertEquals(2, filter.duplicates());
+            assertTrue(filter.collisions() > 0);
+        }
+    }
+
+    @Test
+    void comparesLongRecordsAgainstTheInput() throws IOException {
+        String large = record(1, 1) + "X".repeat(100_000);
+        Path input = input(List.of(large, large + "Y", large.substring(0, large.length() - 1), large), "\n");
+        try (DuplicateFilter filter = new DuplicateFilter(KEY_LENGTH, input)) {
+            assertEquals(List.of(false, false, false, true), admit(filter, input));
+        }
+    }
+
+    @Test
+    void confirmsTrimmedLinesAcrossTerminatorsAndMultiByteText() throws IOException {
+        String record = record(5, 5) + "Zürich";
+        Path input = input(List.of("  " + record + " ", record, record + "\t", "Zürich " + record), "\r\n");
+        try (DuplicateFilter filter = new DuplicateFilter(KEY_LENGTH, input)) {
+            assertEquals(List.of(false, true, true, false), admit(filter, input));
+        }
+    }
+
+    @Test
+    void blankRecordsAreNeverDuplicates() throws IOException {
+        Path input = input(List.of("", "   ", ""), "\n");
+        try (DuplicateFilter filter = new DuplicateFilter(KEY_LENGTH, input)) {
+            assertEquals(List.of(false, false, false), admit(filter, input));
+            assertEquals(0, filter.duplicates());
+        }
+    }
+
+    private Path input(List<String> lines, String terminator) throws IOException {
+        Path input = Files.createTempFile(dir, "input", ".txt");
+        Files.writeString(input, String.join(terminator, lines) + terminator, StandardCharsets.UTF_8);
+        return input;
+    }
+
+    // Feeds each line to the filter trimmed and with its byte offset, as RecordPipeline.admit does
+    private static List<Boolean> admit(DuplicateFilter filter, Path input) throws IOException {
+        List<Boolean> duplicate = new ArrayList<>();
+        try (LineReader reader = LineReader.open(input)) {
+            long start = reader.position();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                duplicate.add(filter.isDuplicate(line.trim(), start));
+                start = reader.position();
+            }
+        }
+        return duplicate;
+    }
+
+    private static String record(int account, long amountCents) {
+        return String.format("%012d%-8s%8s%09d%012d", account, "DEPOSIT", "20260119", amountCents, 500_000);
+    }
+}
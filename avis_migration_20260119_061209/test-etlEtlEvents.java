@@ -0,0 +1,200 @@
+// Java Flight Recorder events for the ETL batch pipeline (enable with test-etl.jfc)
+package com.batch.etl;
+
+import jdk.jfr.*;
+
+public class EtlEvents {
+
+    @Name("com.batch.etl.JobStart")
+    @Label("ETL Job Start")
+    @Category({"ETL", "Batch"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static class JobStart extends Event {
+        @Label("Input File")
+        public String inputFile;
+
+        @Label("Input Size")
+        @DataAmount
+        public long inputBytes;
+    }
+
+    @Name("com.batch.etl.JobEnd")
+    @Label("ETL Job End")
+    @Description("Spans the whole job; begins when the job starts")
+    @Category({"ETL", "Batch"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static class JobEnd extends Event {
+        @Label("Input File")
+        public String inputFile;
+
+        @Label("Records Read")
+        public long recordsRead;
+
+        @Label("Records Valid")
+        public long recordsValid;
+
+        @Label("Records Rejected")
+        public long recordsRejected;
+
+        @Label("Bytes Read")
+        @DataAmount
+        public long bytesRead;
+
+        @Label("Succeeded")
+        public boolean succeeded;
+    }
+
+    @Name("com.batch.etl.ChunkProcessed")
+    @Label("ETL Chunk Processed")
+    @Category({"ETL", "Batch"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static class ChunkProcessed extends Event {
+        @Label("Chunk")
+        public long chunk;
+
+        @Label("First Record")
+        public long firstRecord;
+
+        @Label("Records")
+        public int records;
+
+        @Label("Rejects")
+        public int rejects;
+
+        @Label("Start Offset")
+        @DataAmount
+        public long startOffset;
+
+        @Label("End Offset")
+        @DataAmount
+        public long endOffset;
+    }
+
+    @Name("com.batch.etl.RejectStorm")
+    @Label("ETL Reject Storm")
+    @Description("A chunk whose reject ratio reached the configured threshold")
+    @Category({"ETL", "Batch"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static class RejectStorm extends Event {
+        @Label("Chunk")
+        public long chunk;
+
+        @Label("Records")
+        public int records;
+
+        @Label("Rejects")
+        public int rejects;
+
+        @Label("Start Offset")
+        @DataAmount
+        public long startOffset;
+
+        @Label("End Offset")
+        @DataAmount
+        public long endOffset;
+    }
+
+    @Name("com.batch.etl.CheckpointWritten")
+    @Label("ETL Checkpoint Written")
+    @Category({"ETL", "Batch"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static class CheckpointWritten extends Event {
+        @Label("Checkpoint")
+        public String checkpoint;
+
+        @Label("Records")
+        public long records;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+    }
+
+    // Emits ChunkProcessed, and RejectStorm when warranted, every chunkSize records
+    public static final class ChunkTracker {
+        private final int chunkSize;
+        private final double stormRatio;
+        private ChunkProcessed event;
+        private long chunk;
+        private long firstRecord;
+        private long startOffset;
+        private int records;
+        private int rejects;
+
+        public ChunkTracker(int chunkSize, double stormRatio) {
+            this.chunkSize = chunkSize;
+            this.stormRatio = stormRatio;
+        }
+
+        // Call before consuming each record, with the byte offset at which it starts
+        public void next(long offset) {
+            if (event == null) {
+                open(offset);
+            } else if (records == chunkSize) {
+                close(offset);
+                open(offset);
+            }
+            records++;
+        }
+
+        public void reject() {
+            rejects++;
+        }
+
+        public void finish(long offset) {
+            if (event != null && records > 0) {
+                close(offset);
+            }
+            event = null;
+        }
+
+        private void open(long offset) {
+            firstRecord += records;
+            startOffset = offset;
+            records = 0;
+            rejects = 0;
+            event = new ChunkProcessed();
+            event.begin();
+        }
+
+        private void close(long offset) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.chunk = chunk;
+                event.firstRecord = firstRecord;
+                event.records = records;
+                event.rejects = rejects;
+                event.startOffset = startOffset;
+                event.endOffset = offset;
+                event.commit();
+            }
+            if (rejects > 0 && rejects >= records * stormRatio) {
+                RejectStorm storm = new RejectStorm();
+                if (storm.shouldCommit()) {
+                    storm.chunk = chunk;
+                    storm.records = records;
+                    storm.rejects = rejects;
+                    storm.startOffset = startOffset;
+                    storm.endOffset = offset;
+                    storm.commit();
+                }
+            }
+            chunk++;
+        }
+    }
+
+    public static void checkpoint(CheckpointWritten event, String checkpoint, long records, long bytes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.checkpoint = checkpoint;
+            event.records = records;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+}
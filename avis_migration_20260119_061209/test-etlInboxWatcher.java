@@ -0,0 +1,272 @@
+// Long-running inbox watcher - processes dropped files in a warm JVM
+package com.batch.etl;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.*;
+import com.batch.etl.model.DataModel.*;
+
+public class InboxWatcher implements Runnable, InboxWatcherMXBean {
+
+    // How upstream signals that a dropped file is complete
+    public enum Protocol {
+        RENAME,  // written as *.tmp / *.part, then renamed to its final name
+        MARKER   // written in place, then an empty <file>.done marker is created
+    }
+
+    @FunctionalInterface
+    public interface FileJob {
+        SummaryRecord process(Path input, Path validOutput, Path rejectOutput) throws IOException;
+    }
+
+    private static final String MARKER_SUFFIX = ".done";
+    private static final DateTimeFormatter ARCHIVE_STAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+    private final Path inbox;
+    private final Path outbox;
+    private final Path archive;
+    private final Path failed;
+    private final Protocol protocol;
+    private final FileJob job;
+    private volatile boolean running = true;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private final AtomicLong filesProcessed = new AtomicLong();
+    private final AtomicLong filesFailed = new AtomicLong();
+    private final AtomicLong lastLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+
+    public InboxWatcher(Path inbox, Path outbox, Path archive, Protocol protocol, FileJob job) {
+        this.inbox = inbox;
+        this.outbox = outbox;
+        this.archive = archive;
+        this.failed = archive.resolve("failed");
+        this.protocol = protocol;
+        this.job = job;
+    }
+
+    @Override
+    public void run() {
+        try {
+            watch();
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    private void watch() {
+        try (WatchService watcher = inbox.getFileSystem().newWatchService()) {
+            Files.createDirectories(inbox);
+            Files.createDirectories(outbox);
+            Files.createDirectories(failed);
+            inbox.register(watcher, StandardWatchEventKinds.ENTRY_CREATE);
+
+            System.out.println("Watching " + inbox + " for " + protocol + " drops");
+            // Files that arrived while the watcher was down
+            scanInbox();
+
+            while (running) {
+                WatchKey key = watcher.poll(1, TimeUnit.SECONDS);
+                if (key == null) {
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (!running) {
+                        break;
+                    }
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        scanInbox();
+                    } else {
+                        onArrival(inbox.resolve((Path) event.context()), System.nanoTime());
+                    }
+                }
+                if (!key.reset()) {
+                    System.err.println("Inbox no longer accessible: " + inbox);
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Inbox watcher failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // The file in progress is finished first; no further file is started
+    public void stop() {
+        running = false;
+    }
+
+    // For a shutdown hook: stops the watcher and waits until run() has returned, so the JVM
+    // does not exit halfway through a file
+    public boolean stopAndWait(long timeout, TimeUnit unit) throws InterruptedException {
+        stop();
+        return stopped.await(timeout, unit);
+    }
+
+    // Registers com.batch.etl:type=InboxWatcher
+    public void register() {
+        try {
+            ObjectName name = new ObjectName("com.batch.etl:type=InboxWatcher");
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register inbox watcher MBean: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String getInbox() {
+        return inbox.toString();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running && stopped.getCount() > 0;
+    }
+
+    @Override
+    public long getFilesProcessed() {
+        return filesProcessed.get();
+    }
+
+    @Override
+    public long getFilesFailed() {
+        return filesFailed.get();
+    }
+
+    @Override
+    public long getLastLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastLatencyNanos.get());
+    }
+
+    @Override
+    public long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    @Override
+    public long getAverageLatencyMillis() {
+        long files = filesProcessed.get();
+        return files == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / files);
+    }
+
+    private void scanInbox() throws IOException {
+        List<Path> pending = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(inbox)) {
+            for (Path file : files) {
+                pending.add(file);
+            }
+        }
+        pending.sort(Comparator.comparing(InboxWatcher::lastModified));
+        long now = System.nanoTime();
+        for (Path file : pending) {
+            if (!running) {
+                return;
+            }
+            onArrival(file, now);
+        }
+    }
+
+    private void onArrival(Path path, long arrivalNanos) {
+        String name = path.getFileName().toString();
+        Path input;
+        if (protocol == Protocol.MARKER) {
+            if (!name.endsWith(MARKER_SUFFIX)) {
+                return;
+            }
+            input = path.resolveSibling(name.substring(0, name.length() - MARKER_SUFFIX.length()));
+        } else {
+            if (name.endsWith(".tmp") || name.endsWith(".part") || name.startsWith(".")) {
+                return;
+            }
+            input = path;
+        }
+        // Events can repeat for the same file; anything already archived is gone from the inbox
+        if (!Files.isRegularFile(input)) {
+            return;
+        }
+        processFile(input, arrivalNanos);
+        if (protocol == Protocol.MARKER) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                System.err.println("Could not remove marker " + path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void processFile(Path input, long arrivalNanos) {
+        String base = outputBase(input);
+        Path validOutput = outbox.resolve(base + "_valid.txt");
+        Path rejectOutput = outbox.resolve(base + "_reject.txt");
+        try {
+            SummaryRecord summary = job.process(input, validOutput, rejectOutput);
+            moveToArchive(input, archive);
+
+            long latency = System.nanoTime() - arrivalNanos;
+            filesProcessed.incrementAndGet();
+            lastLatencyNanos.set(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            totalLatencyNanos.addAndGet(latency);
+            System.out.println("Processed " + input.getFileName() + " in "
+                + TimeUnit.NANOSECONDS.toMillis(latency) + " ms: " + summary.format());
+        } catch (Exception e) {
+            filesFailed.incrementAndGet();
+            System.err.println("Error processing file: " + input + " - " + e.getMessage());
+            try {
+                moveToArchive(input, failed);
+            } catch (IOException moveError) {
+                System.err.println("Could not move failed file " + input + ": " + moveError.getMessage());
+            }
+        }
+    }
+
+    private static void moveToArchive(Path input, Path dir) throws IOException {
+        Path target = dir.resolve(input.getFileName());
+        if (Files.exists(target)) {
+            target = dir.resolve(input.getFileName() + "." + LocalDateTime.now().format(ARCHIVE_STAMP));
+        }
+        Files.move(input, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // The input's base name, stamped when an earlier file already produced outputs under it
+    // (a.txt after a.dat, or the same name dropped again), so no output is ever overwritten
+    private String outputBase(Path input) {
+        String name = input.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        if (!outputsExist(base)) {
+            return base;
+        }
+        String stamped = base + "." + LocalDateTime.now().format(ARCHIVE_STAMP);
+        String candidate = stamped;
+        for (int n = 1; outputsExist(candidate); n++) {
+            candidate = stamped + "-" + n;
+        }
+        return candidate;
+    }
+
+    private boolean outputsExist(String base) {
+        return Files.exists(outbox.resolve(base + "_valid.txt")) || Files.exists(outbox.resolve(base + "_reject.txt"));
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+// JMX view of the inbox watcher: files handled and latency from arrival to output
+package com.batch.etl;
+
+public interface InboxWatcherMXBean {
+
+    String getInbox();
+
+    boolean isRunning();
+
+    long getFilesProcessed();
+
+    long getFilesFailed();
+
+    long getLastLatencyMillis();
+
+    long getMaxLatencyMillis();
+
+    long getAverageLatencyMillis();
+}
@@ -0,0 +1,97 @@
+package com.batch.etl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import com.batch.etl.model.DataModel.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InboxWatcherTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keepsOutputsOfInputsSharingABaseName() throws Exception {
+        Path inbox = dir.resolve("inbox");
+        Path outbox = dir.resolve("outbox");
+        Files.createDirectories(inbox);
+        Files.writeString(inbox.resolve("branch.txt"), "first");
+        Files.writeString(inbox.resolve("branch.dat"), "second");
+
+        InboxWatcher watcher = new InboxWatcher(inbox, outbox, dir.resolve("archive"), InboxWatcher.Protocol.RENAME,
+            InboxWatcherTest::copy);
+        Thread worker = new Thread(watcher);
+        worker.start();
+        try {
+            waitFor(() -> watcher.getFilesProcessed() == 2);
+        } finally {
+            assertTrue(watcher.stopAndWait(10, TimeUnit.SECONDS));
+        }
+
+        try (var outputs = Files.list(outbox)) {
+            List<String> contents = outputs.filter(p -> p.getFileName().toString().endsWith("_valid.txt"))
+                .map(InboxWatcherTest::read).sorted().toList();
+            assertEquals(List.of("first", "second"), contents);
+        }
+        assertEquals(0, watcher.getFilesFailed());
+        assertTrue(watcher.getMaxLatencyMillis() >= watcher.getAverageLatencyMillis());
+    }
+
+    @Test
+    void stopAndWaitLetsTheCurrentFileFinish() throws Exception {
+        Path inbox = dir.resolve("inbox");
+        Files.createDirectories(inbox);
+        Files.writeString(inbox.resolve("slow.txt"), "slow");
+        CountDownLatch started = new CountDownLatch(1);
+
+        InboxWatcher watcher = new InboxWatcher(inbox, dir.resolve("outbox"), dir.resolve("archive"),
+            InboxWatcher.Protocol.RENAME, (input, valid, reject) -> {
+                started.countDown();
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return copy(input, valid, reject);
+            });
+        Thread worker = new Thread(watcher);
+        worker.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        assertTrue(watcher.stopAndWait(10, TimeUnit.SECONDS));
+        assertFalse(watcher.isRunning());
+        assertEquals(1, watcher.getFilesProcessed());
+        assertTrue(Files.exists(dir.resolve("archive").resolve("slow.txt")));
+    }
+
+    private static SummaryRecord copy(Path input, Path valid, Path reject) throws IOException {
+        Files.writeString(valid, Files.readString(input));
+        Files.writeString(reject, "");
+        return new SummaryRecord(1, 1, 0, 0, 0, 0, BigDecimal.ZERO, LocalDate.now());
+    }
+
+    private static String read(Path file) {
+        try {
+            return Files.readString(file);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+// Shared executor for concurrent batch jobs - weighted fair share across jobs, work stealing within them
+package com.batch.etl;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JobExecutor implements Closeable {
+
+    // A job handed out as a sequence of chunks read from its input
+    public interface ChunkedJob<R> extends Closeable {
+        // Next chunk, or null once the input is exhausted; never called concurrently for one job
+        Chunk nextChunk() throws IOException;
+
+        // Called once every chunk has been committed; close() follows whether or not the job succeeded
+        R finish() throws IOException;
+    }
+
+    public interface Chunk {
+        int size();
+
+        // Records [from, to); disjoint ranges of one chunk may be processed by several workers at once
+        void process(int from, int to);
+
+        // Chunks of a job are committed one at a time, in the order they were read
+        void commit() throws IOException;
+    }
+
+    private static final int SPLIT_THRESHOLD = 1024;
+
+    private final ForkJoinPool pool;
+    private final int maxInFlight;
+    private final Object lock = new Object();
+    private final List<Job<?>> active = new ArrayList<>();
+    private int inFlight;
+    private boolean closed;
+
+    public JobExecutor(int parallelism) {
+        AtomicInteger workers = new AtomicInteger();
+        this.pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("etl-worker-" + workers.getAndIncrement());
+            return thread;
+        }, null, true);
+        // Enough queued chunks to keep every worker busy, few enough that a new job is served promptly
+        this.maxInFlight = parallelism * 2;
+    }
+
+    // A job of weight 2 is offered twice the chunk slots of a job of weight 1 while both have input
+    public <R> CompletableFuture<R> submit(String name, int weight, ChunkedJob<R> source) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Job weight must be at least 1: " + weight);
+        }
+        Job<R> job = new Job<>(name, weight, source);
+        synchronized (lock) {
+            if (closed) {
+                throw new RejectedExecutionException("Executor is closed; cannot run job " + name);
+            }
+            // Newcomers start level with the least-served job, so past work is neither owed nor charged
+            job.virtualTime = minVirtualTime();
+            active.add(job);
+        }
+        dispatch();
+        return job.result;
+    }
+
+    public int activeJobs() {
+        synchronized (lock) {
+            return active.size();
+        }
+    }
+
+    // Waits for submitted jobs to finish, then stops the workers
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            while (!active.isEmpty()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        pool.shutdown();
+    }
+
+    // Hands free slots to the jobs with the least weighted service so far
+    private void dispatch() {
+        synchronized (lock) {
+            while (inFlight < maxInFlight) {
+                Job<?> next = null;
+                for (Job<?> job : active) {
+                    if (job.hasInput() && !job.reading && (next == null || job.virtualTime < next.virtualTime)) {
+                        next = job;
+                    }
+                }
+                if (next == null) {
+                    return;
+                }
+                next.virtualTime += 1.0 / next.weight;
+                next.reading = true;
+                next.inFlight++;
+                inFlight++;
+                Job<?> job = next;
+                pool.execute(() -> runChunk(job));
+            }
+        }
+    }
+
+    private void runChunk(Job<?> job) {
+        try {
+            ReadChunk read;
+            try {
+                read = job.read();
+            } catch (Throwable t) {
+                // Failed before reading is released, so dispatch() never hands out a read on a broken input
+                job.fail(t);
+                read = null;
+            }
+            // The next chunk of this job can be read while this one is processed
+            synchronized (lock) {
+                job.reading = false;
+            }
+            dispatch();
+            if (read != null) {
+                job.process(read);
+            }
+        } catch (Throwable t) {
+            job.fail(t);
+        } finally {
+            boolean done;
+            synchronized (lock) {
+                inFlight--;
+                job.inFlight--;
+                done = job.inFlight == 0 && !job.hasInput() && !job.ended;
+                if (done) {
+                    job.ended = true;
+                }
+            }
+            if (done) {
+                job.end();
+                synchronized (lock) {
+                    active.remove(job);
+                    lock.notifyAll();
+                }
+            }
+            dispatch();
+        }
+    }
+
+    private double minVirtualTime() {
+        double min = Double.MAX_VALUE;
+        for (Job<?> job : active) {
+            min = Math.min(min, job.virtualTime);
+        }
+        return active.isEmpty() ? 0 : min;
+    }
+
+    private static final class Job<R> {
+        private final String name;
+        private final int weight;
+        private final ChunkedJob<R> source;
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+
+        // Guarded by the executor lock; at most one task per job reads, so no worker waits on another's input
+        private double virtualTime;
+        private int inFlight;
+        private boolean reading;
+        private boolean ended;
+
+        private volatile boolean exhausted;
+        private volatile Throwable failure;
+        private long chunksRead;
+
+        private final Map<Long, Chunk> processed = new HashMap<>();
+        private long nextCommit;
+
+        Job(String name, int weight, ChunkedJob<R> source) {
+            this.name = name;
+            this.weight = weight;
+            this.source = source;
+        }
+
+        boolean hasInput() {
+            return !exhausted && failure == null;
+        }
+
+        ReadChunk read() throws IOException {
+            if (!hasInput()) {
+                return null;
+            }
+            Chunk chunk = source.nextChunk();
+            if (chunk == null) {
+                exhausted = true;
+                return null;
+            }
+            return new ReadChunk(chunksRead++, chunk);
+        }
+
+        // Once the job has failed, chunks still in flight are dropped instead of processed or committed
+        void process(ReadChunk read) throws IOException {
+            if (failure != null) {
+                return;
+            }
+            // Forked halves land on this worker's deque, where idle workers steal them
+            new Split(read.chunk(), 0, read.chunk().size()).invoke();
+
+            synchronized (processed) {
+                if (failure != null) {
+                    processed.clear();
+                    return;
+                }
+                processed.put(read.seq(), read.chunk());
+                for (Chunk next = processed.remove(nextCommit); next != null; next = processed.remove(nextCommit)) {
+                    try {
+                        next.commit();
+                    } catch (IOException | RuntimeException e) {
+                        // Failed while still holding the commit order, so no later chunk commits after the gap
+                        fail(e);
+                        processed.clear();
+                        throw e;
+                    }
+                    nextCommit++;
+                }
+            }
+        }
+
+        synchronized void fail(Throwable t) {
+            if (failure == null) {
+                failure = t;
+            }
+        }
+
+        void end() {
+            try {
+                if (failure == null) {
+                    result.complete(source.finish());
+                }
+            } catch (Throwable t) {
+                fail(t);
+            }
+            try {
+                source.close();
+            } catch (IOException e) {
+                fail(e);
+            }
+            if (failure != null) {
+                result.completeExceptionally(new IOException("Job " + name + " failed: " + failure.getMessage(), failure));
+            }
+        }
+    }
+
+    private record ReadChunk(long seq, Chunk chunk) {
+    }
+
+    private static final class Split extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Chunk chunk;
+        private final int from;
+        private final int to;
+
+        Split(Chunk chunk, int from, int to) {
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                chunk.process(from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Split(chunk, from, mid), new Split(chunk, mid, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.batch.etl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.batch.etl.model.DataModel.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JobExecutorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readFailureFailsTheJobBeforeAnotherReadIsDispatched() throws Exception {
+        AtomicInteger reads = new AtomicInteger();
+        FakeJob job = new FakeJob(100, 10) {
+            @Override
+            public JobExecutor.Chunk nextChunk() throws IOException {
+                if (reads.incrementAndGet() == 3) {
+                    throw new IOException("disk gone");
+                }
+                return super.nextChunk();
+            }
+        };
+        CompletableFuture<Integer> result;
+        try (JobExecutor executor = new JobExecutor(4)) {
+            result = executor.submit("broken-read", 1, job);
+        }
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause().getMessage().contains("disk gone"), e.getCause().getMessage());
+        assertEquals(3, reads.get());
+        assertTrue(job.closed);
+    }
+
+    @Test
+    void commitFailureStopsLaterChunksFromCommitting() throws Exception {
+        FakeJob job = new FakeJob(200, 10);
+        job.failCommitAt = 5;
+        CompletableFuture<Integer> result;
+        try (JobExecutor executor = new JobExecutor(4)) {
+            result = executor.submit("broken-commit", 1, job);
+        }
+        assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+        assertEquals(List.of(0, 1, 2, 3, 4), job.committed);
+        assertFalse(job.finished);
+    }
+
+    @Test
+    void chunkedJobMatchesSequentialPipeline() throws Exception {
+        Path input = dir.resolve("branch.txt");
+        Files.write(input, AllocationBudgetTest.corpus(25_000));
+
+        SummaryRecord sequential;
+        try (BufferedWriter valid = Files.newBufferedWriter(dir.resolve("seq_valid.txt"));
+             RecordPipeline pipeline = new RecordPipeline(input, output -> FileProcessor.writeRecord(valid, output.format()),
+                 dir.resolve("seq_reject.txt"), null, 12, null, JobProgress.INSTANCE, 1_000, 0.5)) {
+            for (String line = pipeline.readLine(); line != null; line = pipeline.readLine()) {
+                pipeline.write(pipeline.lineStart(),
+                    pipeline.admit(line) ? RecordPipeline.transform(pipeline.recordNumber(), line) : null);
+            }
+            sequential = pipeline.finish();
+        }
+
+        ChunkedEtlJob job = new ChunkedEtlJob(input, ValidOutput.open(dir.resolve("par_valid.txt"), 0, ValidOutput.ShardKey.ACCOUNT),
+            dir.resolve("par_reject.txt"), null, null, 12, JobProgress.forJob("branch.txt"), 1_000, 0.5);
+        SummaryRecord chunked;
+        try (JobExecutor executor = new JobExecutor(4)) {
+            chunked = executor.submit("branch.txt", 1, job).get(30, TimeUnit.SECONDS);
+        }
+
+        assertEquals(sequential, chunked);
+        assertTrue(sequential.duplicateRecords() > 0);
+        assertArrayEquals(Files.readAllBytes(dir.resolve("seq_valid.txt")), Files.readAllBytes(dir.resolve("par_valid.txt")));
+        assertArrayEquals(Files.readAllBytes(dir.resolve("seq_reject.txt")), Files.readAllBytes(dir.resolve("par_reject.txt")));
+    }
+
+    // Chunks of consecutive integers; the result is the number of records committed
+    private static class FakeJob implements JobExecutor.ChunkedJob<Integer> {
+        private final int records;
+        private final int chunkSize;
+        private int next;
+        private int chunks;
+        int failCommitAt = -1;
+        final List<Integer> committed = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean finished;
+        volatile boolean closed;
+
+        FakeJob(int records, int chunkSize) {
+            this.records = records;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public JobExecutor.Chunk nextChunk() throws IOException {
+            if (next >= records) {
+                return null;
+            }
+            int seq = chunks++;
+            int size = Math.min(chunkSize, records - next);
+            next += size;
+            return new JobExecutor.Chunk() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void process(int from, int to) {
+                }
+
+                @Override
+                public void commit() throws IOException {
+                    if (seq == failCommitAt) {
+                        throw new IOException("commit " + seq + " failed");
+                    }
+                    committed.add(seq);
+                }
+            };
+        }
+
+        @Override
+        public Integer finish() {
+            finished = true;
+            return committed.size() * chunkSize;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+// Live WS-COUNTERS, bytes consumed and smoothed ETA for the running job
+package com.batch.etl;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.*;
+
+public class JobProgress implements JobProgressMXBean {
+
+    public static final JobProgress INSTANCE = new JobProgress();
+
+    private static final long SAMPLE_INTERVAL_MILLIS = 1000;
+    private static final double SMOOTHING = 0.2; // EWMA weight of the newest rate sample
+
+    // Written by the processing thread; striped so readers never contend with it
+    private final LongAdder recordsRead = new LongAdder();
+    private final LongAdder recordsProcessed = new LongAdder();
+    private final LongAdder recordsError = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+
+    private volatile String inputFile = "";
+    private volatile String state = "IDLE";
+    private volatile long fileSize;
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    // Maintained by the sampler thread, which every registered instance shares
+    private static ScheduledExecutorService sampler;
+    private volatile double smoothedRate;
+    private long lastSampleBytes;
+    private long lastSampleNanos;
+    private boolean registered;
+
+    private JobProgress() {
+    }
+
+    public void start(String file, long size) {
+        recordsRead.reset();
+        recordsProcessed.reset();
+        recordsError.reset();
+        bytesRead.reset();
+        inputFile = file;
+        fileSize = size;
+        smoothedRate = 0;
+        startNanos = System.nanoTime();
+        endNanos = 0;
+        synchronized (this) {
+            lastSampleBytes = 0;
+            lastSampleNanos = startNanos;
+        }
+        state = "RUNNING";
+    }
+
+    public void finish(boolean succeeded) {
+        endNanos = System.nanoTime();
+        state = succeeded ? "COMPLETED" : "FAILED";
+    }
+
+    public void recordRead(long bytes) {
+        recordsRead.increment();
+        bytesRead.add(bytes);
+    }
+
+    public void recordProcessed() {
+        recordsProcessed.increment();
+    }
+
+    public void recordError() {
+        recordsError.increment();
+    }
+
+    // Registers com.batch.etl:type=JobProgress and starts the ETA sampler
+    public void register() {
+        register("com.batch.etl:type=JobProgress");
+    }
+
+    // Progress of one job on the shared JobExecutor, as com.batch.etl:type=JobProgress,name=<job>
+    public static JobProgress forJob(String job) {
+        JobProgress progress = new JobProgress();
+        progress.register("com.batch.etl:type=JobProgress,name=" + ObjectName.quote(job));
+        return progress;
+    }
+
+    private synchronized void register(String objectName) {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        sampler().scheduleAtFixedRate(this::sample, SAMPLE_INTERVAL_MILLIS, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            ObjectName name = new ObjectName(objectName);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register job progress MBean: " + e.getMessage());
+        }
+    }
+
+    private static synchronized ScheduledExecutorService sampler() {
+        if (sampler == null) {
+            sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "etl-progress-sampler");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return sampler;
+    }
+
+    private synchronized void sample() {
+        if (!"RUNNING".equals(state)) {
+            return;
+        }
+        long now = System.nanoTime();
+        long bytes = bytesRead.sum();
+        double seconds = (now - lastSampleNanos) / 1e9;
+        if (seconds <= 0) {
+            return;
+        }
+        double rate = (bytes - lastSampleBytes) / seconds;
+        smoothedRate = smoothedRate == 0 ? rate : SMOOTHING * rate + (1 - SMOOTHING) * smoothedRate;
+        lastSampleBytes = bytes;
+        lastSampleNanos = now;
+    }
+
+    @Override
+    public String getInputFile() {
+        return inputFile;
+    }
+
+    @Override
+    public String getState() {
+        return state;
+    }
+
+    @Override
+    public long getRecordsRead() {
+        return recordsRead.sum();
+    }
+
+    @Override
+    public long getRecordsProcessed() {
+        return recordsProcessed.sum();
+    }
+
+    @Override
+    public long getRecordsError() {
+        return recordsError.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    @Override
+    public double getPercentComplete() {
+        long size = fileSize;
+        if ("COMPLETED".equals(state)) {
+            return 100.0;
+        }
+        return size <= 0 ? 0 : Math.min(100.0, 100.0 * bytesRead.sum() / size);
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return smoothedRate;
+    }
+
+    @Override
+    public long getElapsedSeconds() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toSeconds(end - startNanos);
+    }
+
+    // -1 until a rate has been sampled
+    @Override
+    public long getEtaSeconds() {
+        if (!"RUNNING".equals(state)) {
+            return 0;
+        }
+        double rate = smoothedRate;
+        if (rate <= 0) {
+            return -1;
+        }
+        return (long) Math.ceil(Math.max(0, fileSize - bytesRead.sum()) / rate);
+    }
+
+    public String toJson() {
+        return String.format(java.util.Locale.ROOT,
+            "{\"inputFile\":\"%s\",\"state\":\"%s\",\"wsRecordsRead\":%d,\"wsRecordsProcessed\":%d,"
+                + "\"wsRecordsError\":%d,\"bytesRead\":%d,\"fileSize\":%d,\"percentComplete\":%.2f,"
+                + "\"bytesPerSecond\":%.0f,\"elapsedSeconds\":%d,\"etaSeconds\":%d}",
+            getInputFile().replace("\\", "\\\\").replace("\"", "\\\""), getState(),
+            getRecordsRead(), getRecordsProcessed(), getRecordsError(), getBytesRead(), getFileSize(),
+            getPercentComplete(), getBytesPerSecond(), getElapsedSeconds(), getEtaSeconds());
+    }
+}
@@ -0,0 +1,27 @@
+// JMX view of the running job's WS-COUNTERS and progress
+package com.batch.etl;
+
+public interface JobProgressMXBean {
+
+    String getInputFile();
+
+    String getState();
+
+    long getRecordsRead();
+
+    long getRecordsProcessed();
+
+    long getRecordsError();
+
+    long getBytesRead();
+
+    long getFileSize();
+
+    double getPercentComplete();
+
+    double getBytesPerSecond();
+
+    long getElapsedSeconds();
+
+    long getEtaSeconds();
+}
@@ -0,0 +1,510 @@
+// In-process job stream - JCL-style steps with condition codes, scheduled as a DAG
+package com.batch.etl;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class JobStream {
+
+    public static final int RC_OK = 0;
+    public static final int RC_WARNING = 4;
+    public static final int RC_ERROR = 8;
+    public static final int RC_SEVERE = 12;
+
+    // NOT_RUN: the stream stopped before the step's dependencies had all ended
+    public enum Status { COMPLETED, FLUSHED, ABENDED, NOT_RUN }
+
+    // Comparison operators of COND=(code,op): the step is bypassed when "code op RC" is true
+    public enum Op {
+        GT, GE, EQ, NE, LT, LE;
+
+        boolean test(int code, int rc) {
+            switch (this) {
+                case GT: return code > rc;
+                case GE: return code >= rc;
+                case EQ: return code == rc;
+                case NE: return code != rc;
+                case LT: return code < rc;
+                default: return code <= rc;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Step {
+        int run(StepContext context) throws Exception;
+    }
+
+    public record StepResult(String step, Status status, int returnCode, Throwable failure) {
+        public String format() {
+            return String.format("%-8s %-9s RC=%04d%s", step, status, returnCode,
+                failure != null ? " " + failure : "");
+        }
+    }
+
+    // Evaluated against the step's dependencies once they have all ended
+    @FunctionalInterface
+    public interface Condition {
+        boolean bypass(List<StepResult> dependencies);
+
+        // COND=(code,op) - any completed dependency; flushed steps take no part, as in JCL
+        static Condition cond(int code, Op op) {
+            return deps -> abended(deps) || deps.stream()
+                .anyMatch(r -> r.status() == Status.COMPLETED && op.test(code, r.returnCode()));
+        }
+
+        // COND=(code,op,stepname)
+        static Condition cond(int code, Op op, String step) {
+            return deps -> abended(deps) || deps.stream()
+                .anyMatch(r -> r.step().equals(step) && r.status() == Status.COMPLETED && op.test(code, r.returnCode()));
+        }
+
+        // COND=EVEN - run whether or not a dependency abended
+        static Condition even() {
+            return deps -> false;
+        }
+
+        // COND=ONLY - run only after a dependency abended
+        static Condition only() {
+            return deps -> !abended(deps);
+        }
+
+        default Condition or(Condition other) {
+            return deps -> bypass(deps) || other.bypass(deps);
+        }
+
+        private static boolean abended(List<StepResult> deps) {
+            return deps.stream().anyMatch(r -> r.status() == Status.ABENDED);
+        }
+    }
+
+    // Default for steps without a COND: bypassed only when a dependency abended
+    private static final Condition NORMAL = deps -> deps.stream().anyMatch(r -> r.status() == Status.ABENDED);
+
+    private final String jobName;
+    private final int parallelism;
+    private final Map<String, StepDef> steps = new LinkedHashMap<>();
+    private final Map<String, Channel<?>> channels = new LinkedHashMap<>();
+
+    public JobStream(String jobName, int parallelism) {
+        this.jobName = jobName;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public StepDef step(String name, Step step) {
+        if (steps.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate step " + name + " in job " + jobName);
+        }
+        StepDef def = new StepDef(name, step);
+        steps.put(name, def);
+        return def;
+    }
+
+    // Producer and consumer run side by side; batches flow through memory instead of a data set
+    public <T> Channel<T> pipe(String name, String producer, String consumer, int batchSize, int capacity) {
+        StepDef from = require(producer);
+        StepDef to = require(consumer);
+        if (channels.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate pipe " + name + " in job " + jobName);
+        }
+        Channel<T> channel = new Channel<>(name, producer, consumer, batchSize, capacity);
+        channels.put(name, channel);
+        from.outputs.put(name, channel);
+        to.inputs.put(name, channel);
+        return channel;
+    }
+
+    // Runs every step once; the result lists steps in declaration order
+    public Result run() throws InterruptedException {
+        List<Group> groups = plan();
+        Map<String, StepResult> results = new ConcurrentHashMap<>();
+        BlockingQueue<Group> finished = new LinkedBlockingQueue<>();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, named(jobName));
+        try {
+            List<Group> pending = new ArrayList<>(groups);
+            int running = 0;
+            while (!pending.isEmpty() || running > 0) {
+                for (Iterator<Group> it = pending.iterator(); it.hasNext(); ) {
+                    Group group = it.next();
+                    if (!results.keySet().containsAll(group.dependencies)) {
+                        continue;
+                    }
+                    it.remove();
+                    running++;
+                    pool.execute(() -> {
+                        try {
+                            runGroup(group, results);
+                        } finally {
+                            finished.add(group);
+                        }
+                    });
+                }
+                if (running == 0) {
+                    // Nothing left running, so whatever is still pending waits on steps that will never end
+                    notRun(pending, results);
+                    break;
+                }
+                finished.take();
+                running--;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<StepResult> ordered = new ArrayList<>();
+        for (String name : steps.keySet()) {
+            ordered.add(results.get(name));
+        }
+        return new Result(jobName, ordered);
+    }
+
+    public record Result(String jobName, List<StepResult> steps) {
+        // Highest return code of the job; an abend or a step that never ran outranks every return code
+        public int maxReturnCode() {
+            int max = RC_OK;
+            for (StepResult step : steps) {
+                if (step.status() == Status.ABENDED || step.status() == Status.NOT_RUN) {
+                    return RC_SEVERE;
+                }
+                max = Math.max(max, step.returnCode());
+            }
+            return max;
+        }
+
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            for (StepResult step : steps) {
+                sb.append(jobName).append(' ').append(step.format()).append(System.lineSeparator());
+            }
+            sb.append(jobName).append(" ENDED - MAXCC=").append(String.format("%04d", maxReturnCode()))
+                .append(System.lineSeparator());
+            return sb.toString();
+        }
+    }
+
+    public final class StepDef {
+        private final String name;
+        private final Step step;
+        private final Set<String> after = new LinkedHashSet<>();
+        private final Map<String, Channel<?>> inputs = new LinkedHashMap<>();
+        private final Map<String, Channel<?>> outputs = new LinkedHashMap<>();
+        private Condition condition = NORMAL;
+
+        private StepDef(String name, Step step) {
+            this.name = name;
+            this.step = step;
+        }
+
+        public StepDef after(String... predecessors) {
+            for (String predecessor : predecessors) {
+                require(predecessor);
+                after.add(predecessor);
+            }
+            return this;
+        }
+
+        public StepDef when(Condition condition) {
+            this.condition = condition;
+            return this;
+        }
+    }
+
+    public final class StepContext {
+        private final StepDef def;
+
+        private StepContext(StepDef def) {
+            this.def = def;
+        }
+
+        public String jobName() {
+            return jobName;
+        }
+
+        public String stepName() {
+            return def.name;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> Channel<T> input(String pipe) {
+            Channel<?> channel = def.inputs.get(pipe);
+            if (channel == null) {
+                throw new IllegalArgumentException("Step " + def.name + " does not read pipe " + pipe);
+            }
+            return (Channel<T>) channel;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> Channel<T> output(String pipe) {
+            Channel<?> channel = def.outputs.get(pipe);
+            if (channel == null) {
+                throw new IllegalArgumentException("Step " + def.name + " does not write pipe " + pipe);
+            }
+            return (Channel<T>) channel;
+        }
+    }
+
+    // Bounded hand-off of record batches between two steps of the same group
+    public static final class Channel<T> implements RecordSink<T> {
+        private static final long POLL_MILLIS = 100;
+
+        private final String name;
+        private final String producer;
+        private final String consumer;
+        private final int batchSize;
+        private final BlockingQueue<List<T>> queue;
+        private final List<T> end = new ArrayList<>(0);
+        private List<T> batch;
+        private volatile String failedStep;
+        private volatile boolean cancelled;
+        private boolean closed;
+
+        private Channel(String name, String producer, String consumer, int batchSize, int capacity) {
+            this.name = name;
+            this.producer = producer;
+            this.consumer = consumer;
+            this.batchSize = Math.max(1, batchSize);
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+            this.batch = new ArrayList<>(this.batchSize);
+        }
+
+        public String name() {
+            return name;
+        }
+
+        // Producer side; blocks while the consumer is capacity batches behind
+        @Override
+        public void write(T record) throws IOException {
+            batch.add(record);
+            if (batch.size() == batchSize) {
+                send(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        // Consumer side; null once the producer has closed the pipe and every batch was taken
+        public List<T> take() throws IOException {
+            try {
+                while (true) {
+                    List<T> next = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (next == end) {
+                        queue.add(end);
+                        return null;
+                    }
+                    if (next != null) {
+                        return next;
+                    }
+                    if (failedStep != null) {
+                        throw new IOException("Pipe " + name + ": step " + failedStep + " did not complete");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted reading pipe " + name, e);
+            }
+        }
+
+        void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            if (!batch.isEmpty()) {
+                send(batch);
+                batch = new ArrayList<>(0);
+            }
+            send(end);
+            closed = true;
+        }
+
+        void fail(String step) {
+            failedStep = step;
+        }
+
+        void cancel() {
+            cancelled = true;
+            queue.clear();
+        }
+
+        private void send(List<T> records) throws IOException {
+            try {
+                while (!queue.offer(records, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) {
+                        throw new IOException("Pipe " + name + ": step " + consumer + " stopped reading");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted writing pipe " + name, e);
+            }
+        }
+    }
+
+    // Steps joined by pipes are started together; a group waits for all of its outside dependencies
+    private record Group(List<StepDef> members, Set<String> dependencies) {
+    }
+
+    private List<Group> plan() {
+        Map<String, String> root = new HashMap<>();
+        for (String name : steps.keySet()) {
+            root.put(name, name);
+        }
+        for (Channel<?> channel : channels.values()) {
+            root.put(find(root, channel.producer), find(root, channel.consumer));
+        }
+
+        Map<String, List<StepDef>> members = new LinkedHashMap<>();
+        for (StepDef def : steps.values()) {
+            members.computeIfAbsent(find(root, def.name), k -> new ArrayList<>()).add(def);
+        }
+        List<Group> groups = new ArrayList<>();
+        for (List<StepDef> group : members.values()) {
+            Set<String> names = new HashSet<>();
+            group.forEach(def -> names.add(def.name));
+            Set<String> dependencies = new LinkedHashSet<>();
+            for (StepDef def : group) {
+                for (String predecessor : def.after) {
+                    if (names.contains(predecessor)) {
+                        throw new IllegalStateException("Step " + def.name + " cannot wait for " + predecessor
+                            + " while both are joined by a pipe");
+                    }
+                    dependencies.add(predecessor);
+                }
+            }
+            groups.add(new Group(group, dependencies));
+        }
+        checkAcyclic(groups, root);
+        return groups;
+    }
+
+    private void checkAcyclic(List<Group> groups, Map<String, String> root) {
+        Map<String, Integer> state = new HashMap<>();
+        Map<String, Group> byRoot = new HashMap<>();
+        for (Group group : groups) {
+            byRoot.put(find(root, group.members.get(0).name), group);
+        }
+        for (String key : byRoot.keySet()) {
+            visit(key, byRoot, root, state);
+        }
+    }
+
+    private void visit(String key, Map<String, Group> byRoot, Map<String, String> root, Map<String, Integer> state) {
+        Integer s = state.get(key);
+        if (s != null) {
+            if (s == 1) {
+                throw new IllegalStateException("Job " + jobName + " has a dependency cycle through step " + key);
+            }
+            return;
+        }
+        state.put(key, 1);
+        for (String dependency : byRoot.get(key).dependencies) {
+            visit(find(root, dependency), byRoot, root, state);
+        }
+        state.put(key, 2);
+    }
+
+    private static String find(Map<String, String> root, String name) {
+        String parent = root.get(name);
+        while (!parent.equals(name)) {
+            name = parent;
+            parent = root.get(name);
+        }
+        return name;
+    }
+
+    private void runGroup(Group group, Map<String, StepResult> results) {
+        Throwable failure = null;
+        try {
+            List<StepDef> launch = new ArrayList<>();
+            for (StepDef def : group.members) {
+                List<StepResult> deps = new ArrayList<>();
+                def.after.forEach(name -> deps.add(results.get(name)));
+                if (def.condition.bypass(deps)) {
+                    end(def, new StepResult(def.name, Status.FLUSHED, RC_OK, null), results);
+                } else {
+                    launch.add(def);
+                }
+            }
+            if (launch.isEmpty()) {
+                return;
+            }
+
+            // The group's first step runs on the pool thread, pipe partners on threads of their own
+            List<Thread> partners = new ArrayList<>();
+            for (StepDef def : launch.subList(1, launch.size())) {
+                Thread thread = new Thread(() -> execute(def, results), jobName + "-" + def.name);
+                thread.start();
+                partners.add(thread);
+            }
+            execute(launch.get(0), results);
+            for (Thread thread : partners) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        } catch (Throwable t) {
+            failure = t;
+        } finally {
+            // Every step of the group ends with a result, or the scheduler would wait for it forever.
+            // A partner still running after an interrupt keeps this result; its own comes too late.
+            for (StepDef def : group.members) {
+                if (!results.containsKey(def.name)) {
+                    end(def, new StepResult(def.name, Status.ABENDED, RC_SEVERE,
+                        failure != null ? failure : new IllegalStateException("Step " + def.name + " did not end")),
+                        results);
+                }
+            }
+        }
+    }
+
+    private void execute(StepDef def, Map<String, StepResult> results) {
+        StepResult result;
+        try {
+            int rc = def.step.run(new StepContext(def));
+            for (Channel<?> channel : def.outputs.values()) {
+                channel.close();
+            }
+            result = new StepResult(def.name, Status.COMPLETED, rc, null);
+        } catch (Throwable t) {
+            // Errors abend the step too; the job reports them instead of losing the thread
+            result = new StepResult(def.name, Status.ABENDED, RC_SEVERE, t);
+        }
+        end(def, result, results);
+    }
+
+    private void notRun(List<Group> pending, Map<String, StepResult> results) {
+        for (Group group : pending) {
+            for (StepDef def : group.members) {
+                end(def, new StepResult(def.name, Status.NOT_RUN, RC_SEVERE, null), results);
+            }
+        }
+        pending.clear();
+    }
+
+    private void end(StepDef def, StepResult result, Map<String, StepResult> results) {
+        if (result.status() != Status.COMPLETED) {
+            def.outputs.values().forEach(channel -> channel.fail(def.name));
+        }
+        def.inputs.values().forEach(Channel::cancel);
+        results.putIfAbsent(def.name, result);
+    }
+
+    private static ThreadFactory named(String jobName) {
+        return new ThreadFactory() {
+            private int next;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                return new Thread(r, jobName + "-group-" + (next++));
+            }
+        };
+    }
+
+    private StepDef require(String name) {
+        StepDef def = steps.get(name);
+        if (def == null) {
+            throw new IllegalArgumentException("Unknown step " + name + " in job " + jobName);
+        }
+        return def;
+    }
+}
@@ -0,0 +1,84 @@
+package com.batch.etl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+
+class JobStreamTest {
+
+    @Test
+    void errorInStepAbendsItAndFlushesDependents() throws Exception {
+        JobStream stream = new JobStream("ERRJOB", 2);
+        stream.step("BOOM", context -> {
+            throw new StackOverflowError("deep");
+        });
+        stream.step("AFTER", context -> JobStream.RC_OK).after("BOOM");
+
+        JobStream.Result result = runWithin(stream);
+        assertEquals(JobStream.Status.ABENDED, status(result, "BOOM"));
+        assertInstanceOf(StackOverflowError.class, result.steps().get(0).failure());
+        assertEquals(JobStream.Status.FLUSHED, status(result, "AFTER"));
+        assertEquals(JobStream.RC_SEVERE, result.maxReturnCode());
+    }
+
+    @Test
+    void failingConditionAbendsEveryStepOfTheGroup() throws Exception {
+        JobStream stream = new JobStream("CONDJOB", 2);
+        stream.step("FIRST", context -> JobStream.RC_OK);
+        stream.step("PRODUCE", context -> JobStream.RC_OK).after("FIRST")
+            .when(deps -> { throw new IllegalStateException("bad condition"); });
+        stream.step("CONSUME", context -> {
+            context.input("DATA").take();
+            return JobStream.RC_OK;
+        });
+        stream.pipe("DATA", "PRODUCE", "CONSUME", 10, 2);
+        stream.step("LAST", context -> JobStream.RC_OK).after("CONSUME").when(JobStream.Condition.even());
+
+        JobStream.Result result = runWithin(stream);
+        assertEquals(JobStream.Status.COMPLETED, status(result, "FIRST"));
+        assertEquals(JobStream.Status.ABENDED, status(result, "PRODUCE"));
+        assertEquals(JobStream.Status.ABENDED, status(result, "CONSUME"));
+        // COND=EVEN still runs after the abend, and the stream ends instead of waiting on the group
+        assertEquals(JobStream.Status.COMPLETED, status(result, "LAST"));
+    }
+
+    @Test
+    void pipedStepsRunSideBySide() throws Exception {
+        JobStream stream = new JobStream("PIPEJOB", 2);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        stream.step("PRODUCE", context -> {
+            JobStream.Channel<Integer> out = context.output("DATA");
+            for (int i = 0; i < 100; i++) {
+                out.write(i);
+            }
+            return JobStream.RC_WARNING;
+        });
+        stream.step("CONSUME", context -> {
+            JobStream.Channel<Integer> in = context.input("DATA");
+            for (List<Integer> batch = in.take(); batch != null; batch = in.take()) {
+                received.addAll(batch);
+            }
+            return JobStream.RC_OK;
+        });
+        stream.pipe("DATA", "PRODUCE", "CONSUME", 7, 2);
+
+        JobStream.Result result = runWithin(stream);
+        assertEquals(100, received.size());
+        assertEquals(JobStream.RC_WARNING, result.maxReturnCode());
+    }
+
+    private static JobStream.Result runWithin(JobStream stream) throws Exception {
+        ExecutorService runner = Executors.newSingleThreadExecutor();
+        try {
+            return runner.submit(stream::run).get(10, TimeUnit.SECONDS);
+        } finally {
+            runner.shutdownNow();
+        }
+    }
+
+    private static JobStream.Status status(JobStream.Result result, String step) {
+        return result.steps().stream().filter(r -> r.step().equals(step)).findFirst().orElseThrow().status();
+    }
+}
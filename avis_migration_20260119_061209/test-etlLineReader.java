@@ -0,0 +1,100 @@
+// Line reader for UTF-8 input files that knows the exact byte offset of every line
+package com.batch.etl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.Arrays;
+
+// Lines end at \n, \r\n or a lone \r, as with BufferedReader.readLine. position() counts raw bytes,
+// terminators and multi-byte characters included, so offsets line up with the file on disk.
+public class LineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private boolean ascii;
+
+    // Malformed input fails the read, as Files.newBufferedReader does
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+    private long position;
+
+    public LineReader(InputStream in) {
+        this.in = in;
+    }
+
+    public static LineReader open(Path file) throws IOException {
+        return new LineReader(Files.newInputStream(file));
+    }
+
+    // Bytes consumed through the terminator of the last line returned
+    public long position() {
+        return position;
+    }
+
+    public String readLine() throws IOException {
+        lineLength = 0;
+        ascii = true;
+        boolean started = false;
+        while (true) {
+            if (pos == limit && !fill()) {
+                return started ? decode() : null;
+            }
+            byte b = buffer[pos++];
+            position++;
+            started = true;
+            if (b == '\n') {
+                return decode();
+            }
+            if (b == '\r') {
+                // A \n right after belongs to this terminator, so position() covers the whole CRLF
+                if ((pos < limit || fill()) && buffer[pos] == '\n') {
+                    pos++;
+                    position++;
+                }
+                return decode();
+            }
+            append(b);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer);
+        if (n <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private void append(byte b) {
+        if (lineLength == line.length) {
+            line = Arrays.copyOf(line, lineLength * 2);
+        }
+        line[lineLength++] = b;
+        ascii &= b >= 0;
+    }
+
+    private String decode() throws CharacterCodingException {
+        if (ascii) {
+            return new String(line, 0, lineLength, StandardCharsets.ISO_8859_1);
+        }
+        return decoder.decode(ByteBuffer.wrap(line, 0, lineLength)).toString();
+    }
+}
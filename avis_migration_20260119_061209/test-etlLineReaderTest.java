@@ -0,0 +1,65 @@
+package com.batch.etl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LineReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tracksByteOffsetsAcrossLineEndingsAndMultiByteText() throws IOException {
+        String text = "00000001 M\u00fcller\r\n00000002 Smith\n\n00000003 \u65e5\u672c\r00000004 last";
+        Path file = dir.resolve("input.txt");
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+
+        List<String> lines = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        try (LineReader reader = LineReader.open(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                offsets.add(reader.position());
+            }
+        }
+
+        try (BufferedReader expected = Files.newBufferedReader(file)) {
+            assertEquals(expected.lines().toList(), lines);
+        }
+        // The umlaut is 2 bytes, CRLF 2 and each CJK character 3
+        assertEquals(List.of(18L, 33L, 34L, 50L, 63L), offsets);
+        assertEquals(Files.size(file), (long) offsets.get(offsets.size() - 1));
+    }
+
+    @Test
+    void crlfSplitAcrossBufferRefillsCountsBothBytes() throws IOException {
+        StringBuilder text = new StringBuilder();
+        text.append("x".repeat(64 * 1024 - 1)).append("\r\n").append("next\r\n");
+        Path file = dir.resolve("input.txt");
+        Files.writeString(file, text);
+
+        try (LineReader reader = LineReader.open(file)) {
+            assertEquals(64 * 1024 - 1, reader.readLine().length());
+            assertEquals("next", reader.readLine());
+            assertNull(reader.readLine());
+            assertEquals(Files.size(file), reader.position());
+        }
+    }
+
+    @Test
+    void malformedUtf8FailsLikeBufferedReader() throws IOException {
+        Path file = dir.resolve("input.txt");
+        Files.write(file, new byte[] {'o', 'k', '\n', (byte) 0xC3, '(', '\n'});
+        try (LineReader reader = LineReader.open(file)) {
+            assertEquals("ok", reader.readLine());
+            assertThrows(CharacterCodingException.class, reader::readLine);
+        }
+    }
+}
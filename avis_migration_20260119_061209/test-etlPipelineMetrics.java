@@ -0,0 +1,53 @@
+// Stage metrics for the ETL pipeline, published as JMX MBeans
+package com.batch.etl;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import javax.management.*;
+
+public class PipelineMetrics {
+
+    private static final int SAMPLE_INTERVAL = Integer.getInteger("etl.metrics.sampleInterval", 16);
+
+    public static final StageMetrics PARSE = new StageMetrics("parse", SAMPLE_INTERVAL);
+    public static final StageMetrics VALIDATE = new StageMetrics("validate", SAMPLE_INTERVAL);
+    public static final StageMetrics TRANSFORM = new StageMetrics("transform", SAMPLE_INTERVAL);
+    public static final StageMetrics WRITE = new StageMetrics("write", SAMPLE_INTERVAL);
+
+    private static final List<StageMetrics> STAGES = List.of(PARSE, VALIDATE, TRANSFORM, WRITE);
+    private static boolean registered;
+
+    private PipelineMetrics() {
+    }
+
+    // Registers com.batch.etl:type=Stage,name=<stage> for each stage; safe to call more than once
+    public static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (StageMetrics stage : STAGES) {
+                ObjectName name = new ObjectName("com.batch.etl:type=Stage,name=" + stage.getStage());
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(stage, name);
+                }
+            }
+            registered = true;
+        } catch (JMException e) {
+            System.err.println("Could not register pipeline metrics MBeans: " + e.getMessage());
+        }
+    }
+
+    public static List<StageMetrics> stages() {
+        return STAGES;
+    }
+
+    public static String format() {
+        StringBuilder sb = new StringBuilder();
+        for (StageMetrics stage : STAGES) {
+            sb.append(stage.format()).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,46 @@
+// Local HTTP endpoint serving live job progress as JSON
+package com.batch.etl;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class ProgressServer {
+
+    private final HttpServer server;
+
+    // Binds to loopback only; GET /progress returns JobProgress as JSON
+    public ProgressServer(int port, JobProgress progress) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/progress", exchange -> respond(exchange, progress));
+        // Requests are served on the accept thread; reads are a handful of adder sums
+        server.setExecutor(null);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Job progress available at http://" + server.getAddress().getHostString()
+            + ":" + server.getAddress().getPort() + "/progress");
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, JobProgress progress) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = progress.toJson().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+}
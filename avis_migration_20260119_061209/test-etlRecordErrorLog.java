@@ -0,0 +1,239 @@
+// Asynchronous, rate-limited log for record-level errors
+package com.batch.etl;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+public class RecordErrorLog implements Closeable {
+
+    public static final RecordErrorLog DEFAULT = open(
+        new OutputStreamWriter(new FileOutputStream(FileDescriptor.err), StandardCharsets.UTF_8),
+        Integer.getInteger("etl.errorlog.capacity", 8192),
+        Integer.getInteger("etl.errorlog.ratePerSecond", 100),
+        Integer.getInteger("etl.errorlog.sampleEvery", 1000));
+
+    private static final int MAX_RECORD_CHARS = 256;
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long FLUSH_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // Preallocated ring; producers copy into a slot, so logging an error allocates nothing
+    private final int mask;
+    private final long[] recordNumbers;
+    private final String[] reasons;
+    private final String[] messages;
+    private final char[][] records;
+    private final int[] recordLengths;
+    private final AtomicLongArray published;
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+
+    private final int ratePerSecond;
+    private final int sampleEvery;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong windowCount = new AtomicLong();
+
+    private final AtomicLong logged = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(MAX_RECORD_CHARS + 128);
+    private char[] lineChars = new char[MAX_RECORD_CHARS + 128];
+    private final Thread consumer;
+    private volatile boolean running = true;
+    // Set by the consumer before it parks; a producer that publishes while it is set unparks it
+    private volatile boolean consumerWaiting;
+    // The writer failed; published slots are still consumed, but dropped instead of written
+    private boolean writerFailed;
+
+    // The consumer thread starts only once the log is fully built
+    public static RecordErrorLog open(Writer out, int capacity, int ratePerSecond, int sampleEvery) {
+        RecordErrorLog log = new RecordErrorLog(out, capacity, ratePerSecond, sampleEvery);
+        log.consumer.start();
+        return log;
+    }
+
+    private RecordErrorLog(Writer out, int capacity, int ratePerSecond, int sampleEvery) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.out = new BufferedWriter(out);
+        this.mask = capacity - 1;
+        this.recordNumbers = new long[capacity];
+        this.reasons = new String[capacity];
+        this.messages = new String[capacity];
+        this.records = new char[capacity][MAX_RECORD_CHARS];
+        this.recordLengths = new int[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.sampleEvery = Math.max(1, sampleEvery);
+        this.consumer = new Thread(this::drainLoop, "etl-record-error-log");
+        this.consumer.setDaemon(true);
+    }
+
+    // Never blocks: over the rate only every sampleEvery-th error keeps its detail, and a full ring drops
+    public void error(long recordNumber, String reason, String message, CharSequence record) {
+        if (!admit()) {
+            suppressed.incrementAndGet();
+            return;
+        }
+        long seq;
+        do {
+            seq = head.get();
+            if (seq - tail > mask) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!head.compareAndSet(seq, seq + 1));
+
+        int slot = (int) (seq & mask);
+        recordNumbers[slot] = recordNumber;
+        reasons[slot] = reason;
+        messages[slot] = message;
+        int len = record == null ? 0 : Math.min(record.length(), MAX_RECORD_CHARS);
+        char[] chars = records[slot];
+        for (int i = 0; i < len; i++) {
+            chars[i] = record.charAt(i);
+        }
+        recordLengths[slot] = len;
+        // A full store, so the consumer either sees the slot or is seen waiting
+        published.set(slot, seq);
+        if (consumerWaiting) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    public long logged() {
+        return logged.get();
+    }
+
+    public long suppressed() {
+        return suppressed.get();
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    // Waits, up to the timeout, for everything logged so far to reach the writer; false on timeout
+    public boolean flush(long timeoutMillis) {
+        long target = head.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (tail < target && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(FLUSH_POLL_NANOS);
+        }
+        return tail >= target;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush(1000);
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.flush();
+    }
+
+    private boolean admit() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            windowCount.set(0);
+        }
+        long n = windowCount.incrementAndGet();
+        return n <= ratePerSecond || (n - ratePerSecond) % sampleEvery == 0;
+    }
+
+    private void drainLoop() {
+        long reportedSuppressed = 0;
+        long reportedDropped = 0;
+        long lastReport = System.nanoTime();
+        while (running || tail < head.get()) {
+            try {
+                boolean wrote = false;
+                // Only slots whose producer has finished are consumed; a claimed slot still being
+                // written stops the drain until it is published
+                long next = tail;
+                while (published.get((int) (next & mask)) == next) {
+                    int slot = (int) (next & mask);
+                    if (writerFailed) {
+                        discard(slot);
+                    } else {
+                        write(slot);
+                        wrote = true;
+                    }
+                    next++;
+                    tail = next;
+                }
+
+                long now = System.nanoTime();
+                if (now - lastReport >= WINDOW_NANOS) {
+                    long s = suppressed.get();
+                    long d = dropped.get();
+                    if (!writerFailed && (s != reportedSuppressed || d != reportedDropped)) {
+                        out.write("Record errors suppressed: " + (s - reportedSuppressed)
+                            + ", dropped: " + (d - reportedDropped) + System.lineSeparator());
+                        reportedSuppressed = s;
+                        reportedDropped = d;
+                        wrote = true;
+                    }
+                    lastReport = now;
+                }
+                if (wrote) {
+                    out.flush();
+                } else {
+                    awaitPublish(next, lastReport + WINDOW_NANOS - now);
+                }
+            } catch (IOException e) {
+                // Nowhere left to report to; keep consuming published slots so producers never back up
+                writerFailed = true;
+            }
+        }
+    }
+
+    // Parks until a producer publishes the next slot, close() is called, or the next suppressed/dropped
+    // report is due. Suppressions publish nothing, so the report timer is what picks them up.
+    private void awaitPublish(long next, long nanos) {
+        consumerWaiting = true;
+        if (running && published.get((int) (next & mask)) != next) {
+            LockSupport.parkNanos(this, Math.max(nanos, 1));
+        }
+        consumerWaiting = false;
+    }
+
+    private void discard(int slot) {
+        reasons[slot] = null;
+        messages[slot] = null;
+        dropped.incrementAndGet();
+    }
+
+    private void write(int slot) throws IOException {
+        line.setLength(0);
+        line.append("Error processing record ").append(recordNumbers[slot])
+            .append(" [").append(reasons[slot]).append("]: ")
+            .append(records[slot], 0, recordLengths[slot]);
+        if (messages[slot] != null) {
+            line.append(" - ").append(messages[slot]);
+        }
+        line.append(System.lineSeparator());
+        if (line.length() > lineChars.length) {
+            lineChars = new char[line.length()];
+        }
+        line.getChars(0, line.length(), lineChars, 0);
+        out.write(lineChars, 0, line.length());
+        reasons[slot] = null;
+        messages[slot] = null;
+        logged.incrementAndGet();
+    }
+}
@@ -0,0 +1,66 @@
+package com.batch.etl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+
+class RecordErrorLogTest {
+
+    @Test
+    void idleConsumerWakesOnPublish() throws Exception {
+        StringWriter out = new StringWriter();
+        try (RecordErrorLog log = RecordErrorLog.open(out, 8, 1_000, 1)) {
+            // Let the consumer go idle and park
+            Thread.sleep(200);
+            log.error(42, "PARSE ERROR", "too short", "SHORT");
+            assertTrue(log.flush(500));
+            assertEquals(1, log.logged());
+        }
+        assertTrue(out.toString().contains("Error processing record 42 [PARSE ERROR]: SHORT - too short"), out.toString());
+    }
+
+    @Test
+    void failedWriterKeepsConsumingPublishedSlots() throws Exception {
+        Writer failing = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("stderr closed");
+            }
+
+            @Override
+            public void flush() throws IOException {
+                throw new IOException("stderr closed");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        // Tiny buffer size so the first error already reaches the failing writer
+        RecordErrorLog log = RecordErrorLog.open(new BufferedWriter(failing, 1), 16, 1_000_000, 1);
+        int producers = 8;
+        int perProducer = 5_000;
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    log.error(base + i, "PARSE ERROR", null, "RECORD");
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        // Every claimed slot is published and consumed; none is skipped while its producer is mid-write
+        assertTrue(log.flush(5_000));
+        assertEquals(producers * perProducer, log.logged() + log.dropped() + log.suppressed());
+        assertThrows(IOException.class, log::close);
+    }
+}
@@ -0,0 +1,214 @@
+// The test-etl record path shared by the sequential batch and the chunked executor jobs
+package com.batch.etl;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.file.*;
+import java.time.LocalDate;
+import com.batch.etl.model.DataModel.*;
+
+// Reading, admission (dedup, delta), counting, progress, JFR events and the reject file are sequential
+// and run in input order; only transform() may run on several threads at once. A caller reads a line,
+// optionally transforms it elsewhere, and hands the outcome back to write() in the order it was read.
+public class RecordPipeline implements Closeable {
+
+    // What transform() made of one record; exactly one of output and reject is set
+    public record Outcome(OutputRecord output, String reject, BigDecimal amount) {
+    }
+
+    private final Path input;
+    private final LineReader reader;
+    private final RecordSink<OutputRecord> validSink;
+    private final BufferedWriter rejectWriter;
+    private final BufferedWriter deletedWriter;
+    private final DuplicateFilter duplicates;
+    private final DeltaTracker delta;
+    private final JobProgress progress;
+    private final EtlEvents.ChunkTracker chunks;
+    private final EtlEvents.JobEnd jobEvent = new EtlEvents.JobEnd();
+
+    private long recordsRead;
+    private long lineStart;
+    private int valid;
+    private int rejected;
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+    private boolean succeeded;
+    private boolean closed;
+
+    // The input is opened first, so a missing input fails before the reject file is truncated.
+    // dedupKeyLength of 0 turns duplicate detection off; delta and deletedOutput are null outside delta mode.
+    // validSink and delta stay owned by the caller, which closes and publishes them.
+    public RecordPipeline(Path input, RecordSink<OutputRecord> validSink, Path rejectOutput, Path deletedOutput,
+                          int dedupKeyLength, DeltaTracker delta, JobProgress progress, int chunkSize,
+                          double rejectStormRatio) throws IOException {
+        jobEvent.begin();
+        this.input = input;
+        this.validSink = validSink;
+        this.delta = delta;
+        this.progress = progress;
+        this.chunks = new EtlEvents.ChunkTracker(chunkSize, rejectStormRatio);
+
+        long size = Files.size(input);
+        EtlEvents.JobStart startEvent = new EtlEvents.JobStart();
+        if (startEvent.shouldCommit()) {
+            startEvent.inputFile = input.toString();
+            startEvent.inputBytes = size;
+            startEvent.commit();
+        }
+
+        LineReader in = LineReader.open(input);
+        DuplicateFilter dedup;
+        BufferedWriter rejects;
+        BufferedWriter deleted;
+        try {
+            dedup = dedupKeyLength > 0 ? new DuplicateFilter(dedupKeyLength, input) : null;
+        } catch (IOException e) {
+            try (in) {
+                throw e;
+            }
+        }
+        try {
+            rejects = Files.newBufferedWriter(rejectOutput);
+        } catch (IOException e) {
+            try (in; dedup) {
+                throw e;
+            }
+        }
+        try {
+            deleted = delta != null ? Files.newBufferedWriter(deletedOutput) : null;
+        } catch (IOException e) {
+            try (in; dedup; rejects) {
+                throw e;
+            }
+        }
+        this.reader = in;
+        this.duplicates = dedup;
+        this.rejectWriter = rejects;
+        this.deletedWriter = deleted;
+        progress.start(input.toString(), size);
+    }
+
+    // Next input line, or null at end of input
+    public String readLine() throws IOException {
+        lineStart = reader.position();
+        String line = reader.readLine();
+        if (line != null) {
+            recordsRead++;
+            // Bytes as stored on disk, multi-byte characters and CRLF terminators included
+            progress.recordRead(reader.position() - lineStart);
+        }
+        return line;
+    }
+
+    // 1-based number of the line readLine() returned last
+    public long recordNumber() {
+        return recordsRead;
+    }
+
+    // Byte offset at which the line readLine() returned last starts
+    public long lineStart() {
+        return lineStart;
+    }
+
+    // False when the line is a duplicate or, in delta mode, unchanged since the last run; line is the one
+    // readLine() returned last
+    public boolean admit(String line) throws IOException {
+        String record = line.trim();
+        // Identical rows from branch files are dropped before validation
+        if (duplicates != null && duplicates.isDuplicate(record, lineStart)) {
+            return false;
+        }
+        // In delta mode only inserted and changed records reach transform and load
+        return delta == null || delta.classify(record) != DeltaTracker.Change.UNCHANGED;
+    }
+
+    // Parse, validate and transform one line; safe to call from several threads at once
+    public static Outcome transform(long recordNumber, String line) {
+        try {
+            // Parse input record using DataModel
+            long t = PipelineMetrics.PARSE.start();
+            InputRecord input = InputRecord.parse(line.trim());
+            PipelineMetrics.PARSE.stop(t);
+
+            // Validate using BusinessLogic
+            t = PipelineMetrics.VALIDATE.start();
+            boolean validRecord = BusinessLogic.validateRecord(input);
+            PipelineMetrics.VALIDATE.stop(t);
+
+            if (!validRecord) {
+                return new Outcome(null,
+                    new RejectRecord(input.getIdentifier(), "INVALID RECORD", input.toString()).format(), null);
+            }
+            // Process valid transaction using BusinessLogic
+            t = PipelineMetrics.TRANSFORM.start();
+            OutputRecord output = BusinessLogic.processTransaction(input);
+            PipelineMetrics.TRANSFORM.stop(t);
+            return new Outcome(output, null, input.amount());
+        } catch (Exception e) {
+            RecordErrorLog.DEFAULT.error(recordNumber, "PARSE ERROR", e.getMessage(), line);
+            return new Outcome(null, new RejectRecord("UNKNOWN", "PARSE ERROR", line).format(), null);
+        }
+    }
+
+    // Accounts for one line, in input order; outcome is null for a line admit() dropped
+    public void write(long lineStart, Outcome outcome) throws IOException {
+        chunks.next(lineStart);
+        if (outcome == null) {
+            return;
+        }
+        if (outcome.output() != null) {
+            long t = PipelineMetrics.WRITE.start();
+            validSink.write(outcome.output());
+            PipelineMetrics.WRITE.stop(t);
+            valid++;
+            progress.recordProcessed();
+            totalAmount = totalAmount.add(outcome.amount());
+        } else {
+            FileProcessor.writeRecord(rejectWriter, outcome.reject());
+            rejected++;
+            chunks.reject();
+            progress.recordError();
+        }
+    }
+
+    // Once every line was written: closes the last chunk event and, in delta mode, lists deleted keys
+    // and prepares the fingerprint store for the caller to publish
+    public SummaryRecord finish() throws IOException {
+        chunks.finish(reader.position());
+        // Fingerprints are only written once the whole file has been processed
+        if (delta != null) {
+            delta.finish(deletedWriter);
+        }
+        int duplicateCount = duplicates != null ? (int) duplicates.duplicates() : 0;
+        int unchangedCount = delta != null ? delta.unchanged() : 0;
+        int deletedCount = delta != null ? delta.deleted() : 0;
+        succeeded = true;
+        return new SummaryRecord((int) recordsRead, valid, rejected, duplicateCount, unchangedCount, deletedCount,
+            totalAmount, LocalDate.now());
+    }
+
+    // Safe to call more than once; the job end is reported on the first call
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (reader; rejectWriter; deletedWriter; duplicates) {
+            // Closes every resource even when one of them fails
+        } finally {
+            RecordErrorLog.DEFAULT.flush(1000);
+            progress.finish(succeeded);
+            jobEvent.end();
+            if (jobEvent.shouldCommit()) {
+                jobEvent.inputFile = input.toString();
+                jobEvent.recordsRead = recordsRead;
+                jobEvent.recordsValid = valid;
+                jobEvent.recordsRejected = rejected;
+                jobEvent.bytesRead = reader.position();
+                jobEvent.succeeded = succeeded;
+                jobEvent.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+// Destination for records leaving a pipeline step - a file, an in-memory pipe, shards
+package com.batch.etl;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface RecordSink<T> {
+
+    void write(T record) throws IOException;
+}
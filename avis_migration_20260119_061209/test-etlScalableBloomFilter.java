@@ -0,0 +1,98 @@
+// Scalable Bloom filter - grows by adding stages with tighter false positive rates
+package com.batch.etl;
+
+import java.util.*;
+
+public class ScalableBloomFilter {
+
+    private static final int GROWTH_FACTOR = 2;
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final List<Stage> stages = new ArrayList<>();
+    private final double falsePositiveRate;
+    private long count;
+
+    public ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter sizing: capacity=" + initialCapacity + ", fpp=" + falsePositiveRate);
+        }
+        this.falsePositiveRate = falsePositiveRate;
+        // The first stage gets half the error budget so the geometric series stays within it
+        stages.add(new Stage(initialCapacity, falsePositiveRate * (1 - TIGHTENING_RATIO)));
+    }
+
+    // h1/h2 are two independent 64-bit hashes of the element (Kirsch-Mitzenmacher double hashing)
+    public boolean mightContain(long h1, long h2) {
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            if (stages.get(i).mightContain(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void add(long h1, long h2) {
+        Stage last = stages.get(stages.size() - 1);
+        if (last.count >= last.capacity) {
+            last = new Stage((int) Math.min(Integer.MAX_VALUE / 2, (long) last.capacity * GROWTH_FACTOR),
+                last.falsePositiveRate * TIGHTENING_RATIO);
+            stages.add(last);
+        }
+        last.add(h1, h2);
+        count++;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public int stageCount() {
+        return stages.size();
+    }
+
+    public double falsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    private static final class Stage {
+        private final long[] bits;
+        private final long bitMask;
+        private final int hashes;
+        private final int capacity;
+        private final double falsePositiveRate;
+        private int count;
+
+        Stage(int capacity, double falsePositiveRate) {
+            double optimalBits = -capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+            // Round up to a power of two so indexes are a mask instead of a modulo
+            long numBits = Long.highestOneBit(Math.max(64L, (long) optimalBits) - 1) << 1;
+            this.bits = new long[(int) (numBits >>> 6)];
+            this.bitMask = numBits - 1;
+            this.hashes = Math.max(1, (int) Math.round(optimalBits / capacity * Math.log(2)));
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+        }
+
+        boolean mightContain(long h1, long h2) {
+            long combined = h1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = combined & bitMask;
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+                combined += h2;
+            }
+            return true;
+        }
+
+        void add(long h1, long h2) {
+            long combined = h1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = combined & bitMask;
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+                combined += h2;
+            }
+            count++;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+// Hash-partitioned output - routes records into N shard files in one pass, plus a manifest
+package com.batch.etl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.function.Function;
+
+public class ShardedWriter<T> implements RecordSink<T>, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path output;
+    private final Path manifest;
+    private final String keyName;
+    private final Function<T, CharSequence> key;
+    private final Function<T, String> formatter;
+    private final Shard[] shards;
+    private boolean closed;
+
+    // Shards of test-etl_valid.txt are test-etl_valid_00.txt ... and the manifest is test-etl_valid.manifest
+    public ShardedWriter(Path output, int shardCount, String keyName, Function<T, CharSequence> key,
+                         Function<T, String> formatter) throws IOException {
+        if (shardCount < 1 || shardCount > 100) {
+            throw new IllegalArgumentException("Shard count must be between 1 and 100: " + shardCount);
+        }
+        String name = output.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+
+        this.output = output;
+        this.manifest = output.resolveSibling(base + ".manifest");
+        this.keyName = keyName;
+        this.key = key;
+        this.formatter = formatter;
+        this.shards = new Shard[shardCount];
+        // A manifest left by an earlier run must not vouch for these shards while they are rewritten
+        Files.deleteIfExists(manifest);
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                shards[i] = new Shard(output.resolveSibling(String.format("%s_%02d%s", base, i, extension)));
+            }
+        } catch (IOException e) {
+            try {
+                closeShards(shards);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    // Stable across runs and JVMs so loaders can recompute it: FNV-1a 64 with a 64-bit finalizer, mod N
+    public static int shardOf(CharSequence key, int shardCount) {
+        return (int) Math.floorMod(DuplicateFilter.hash(key, 0, key.length()), (long) shardCount);
+    }
+
+    @Override
+    public void write(T record) throws IOException {
+        shards[shardOf(key.apply(record), shards.length)].write(formatter.apply(record));
+    }
+
+    public long records(int shard) {
+        return shards[shard].records;
+    }
+
+    // Makes every shard durable, then publishes the manifest; loaders treat the manifest as the completion
+    // signal, so it must never reach disk ahead of the shard data it describes
+    public void complete() throws IOException {
+        long total = 0;
+        for (Shard shard : shards) {
+            shard.flush();
+            shard.force();
+            total += shard.records;
+        }
+        StringBuilder sb = new StringBuilder();
+        appendLine(sb, "shards=" + shards.length);
+        appendLine(sb, "key=" + keyName);
+        appendLine(sb, "hash=fnv1a64-fmix64-mod");
+        appendLine(sb, "records=" + total);
+        for (int i = 0; i < shards.length; i++) {
+            String prefix = String.format("shard.%02d.", i);
+            appendLine(sb, prefix + "file=" + shards[i].path.getFileName());
+            appendLine(sb, prefix + "records=" + shards[i].records);
+            appendLine(sb, prefix + "bytes=" + shards[i].bytes);
+        }
+        Path tmp = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(sb.toString());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // A single-file output from an earlier unsharded run would otherwise sit next to the shards
+        Files.deleteIfExists(output);
+        forceDirectory(manifest.toAbsolutePath().getParent());
+    }
+
+    // Makes the rename (and the deletion) durable; not every platform can open a directory for this
+    private static void forceDirectory(Path dir) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (UnsupportedOperationException | AccessDeniedException e) {
+            // Windows: the rename is as durable as the platform makes it
+        }
+    }
+
+    private static void appendLine(StringBuilder sb, String line) {
+        sb.append(line).append(System.lineSeparator());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closeShards(shards);
+    }
+
+    // Closes every shard opened so far, even when one of them fails
+    private static void closeShards(Shard[] shards) throws IOException {
+        IOException failure = null;
+        for (Shard shard : shards) {
+            if (shard == null) {
+                continue;
+            }
+            try {
+                shard.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // One channel and buffer per shard, so routing a record never touches another shard's state
+    private static final class Shard {
+        private final Path path;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private long records;
+        private long bytes;
+
+        Shard(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void write(String record) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(record);
+            while (encoder.encode(chars, buffer, true).isOverflow()) {
+                drain();
+            }
+            encoder.reset();
+            records++;
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        void force() throws IOException {
+            channel.force(true);
+        }
+
+        void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                bytes += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.batch.etl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.*;
+import java.util.*;
+import com.batch.etl.model.DataModel.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ShardedWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void routesByConfiguredKeyAndReplacesStaleSingleFile() throws IOException {
+        Path valid = dir.resolve("test-etl_valid.txt");
+        Files.writeString(valid, "left over from an unsharded run");
+
+        List<OutputRecord> records = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            records.add(new OutputRecord(String.format("%012d", i), i % 3 == 0 ? "DEPOSIT" : "WITHDRAW",
+                BigDecimal.valueOf(i), BigDecimal.ONE));
+        }
+        try (ValidOutput output = ValidOutput.open(valid, 4, ValidOutput.ShardKey.ACCOUNT)) {
+            for (OutputRecord record : records) {
+                output.write(record);
+            }
+            output.complete();
+        }
+
+        assertFalse(Files.exists(valid));
+        Properties manifest = new Properties();
+        try (var in = Files.newBufferedReader(dir.resolve("test-etl_valid.manifest"))) {
+            manifest.load(in);
+        }
+        assertEquals("account", manifest.getProperty("key"));
+        assertEquals("1000", manifest.getProperty("records"));
+        assertFalse(Files.exists(dir.resolve("test-etl_valid.manifest.tmp")));
+
+        // Every record lands in its account's shard, and the accounts spread over all four
+        for (int shard = 0; shard < 4; shard++) {
+            int current = shard;
+            List<OutputRecord> routed = records.stream()
+                .filter(record -> ShardedWriter.shardOf(record.accountNumber(), 4) == current).toList();
+            assertTrue(routed.size() > 150, "shard " + shard + " holds " + routed.size());
+            assertEquals(String.valueOf(routed.size()), manifest.getProperty(String.format("shard.%02d.records", shard)));
+            StringBuilder expected = new StringBuilder();
+            routed.forEach(record -> expected.append(record.format()));
+            assertEquals(expected.toString(), Files.readString(dir.resolve(String.format("test-etl_valid_%02d.txt", shard))));
+        }
+    }
+
+    @Test
+    void shardsHoldExactlyTheRecordsOfTheSingleFileOutput() throws IOException {
+        List<OutputRecord> records = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            records.add(new OutputRecord(String.format("%012d", i * 7919L % 100_000), i % 2 == 0 ? "DEPOSIT" : "WITHDRAW",
+                BigDecimal.valueOf(i, 2), BigDecimal.valueOf(i % 13)));
+        }
+        Path single = dir.resolve("single_valid.txt");
+        Path sharded = dir.resolve("sharded_valid.txt");
+        for (Path output : List.of(single, sharded)) {
+            try (ValidOutput out = ValidOutput.open(output, output == single ? 0 : 8, ValidOutput.ShardKey.ACCOUNT)) {
+                for (OutputRecord record : records) {
+                    out.write(record);
+                }
+                out.complete();
+            }
+        }
+
+        Properties manifest = new Properties();
+        try (var in = Files.newBufferedReader(dir.resolve("sharded_valid.manifest"))) {
+            manifest.load(in);
+        }
+        List<String> shardRecords = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String prefix = String.format("shard.%02d.", i);
+            Path shard = dir.resolve(manifest.getProperty(prefix + "file"));
+            List<String> inShard = fixedWidthRecords(shard);
+            assertEquals(manifest.getProperty(prefix + "records"), String.valueOf(inShard.size()));
+            assertEquals(manifest.getProperty(prefix + "bytes"), String.valueOf(Files.size(shard)));
+            for (String record : inShard) {
+                assertEquals(i, ShardedWriter.shardOf(record.substring(0, 12), 8), record);
+            }
+            shardRecords.addAll(inShard);
+        }
+
+        List<String> singleRecords = fixedWidthRecords(single);
+        assertEquals(records.size(), singleRecords.size());
+        Collections.sort(singleRecords);
+        Collections.sort(shardRecords);
+        assertEquals(singleRecords, shardRecords);
+    }
+
+    // Valid output is concatenated fixed-width records, with no line separators
+    private static List<String> fixedWidthRecords(Path file) throws IOException {
+        String content = Files.readString(file);
+        int width = new OutputRecord("", "", BigDecimal.ZERO, BigDecimal.ZERO).format().length();
+        assertEquals(0, content.length() % width);
+        List<String> records = new ArrayList<>();
+        for (int from = 0; from < content.length(); from += width) {
+            records.add(content.substring(from, from + width));
+        }
+        return records;
+    }
+
+    @Test
+    void singleFileRunDropsManifestOfEarlierShards() throws IOException {
+        Path valid = dir.resolve("test-etl_valid.txt");
+        try (ValidOutput output = ValidOutput.open(valid, 2, ValidOutput.ShardKey.ACCOUNT)) {
+            output.complete();
+        }
+        assertTrue(Files.exists(dir.resolve("test-etl_valid.manifest")));
+
+        try (ValidOutput output = ValidOutput.open(valid, 0, ValidOutput.ShardKey.ACCOUNT)) {
+            output.complete();
+        }
+        assertFalse(Files.exists(dir.resolve("test-etl_valid.manifest")));
+        assertTrue(Files.exists(valid));
+    }
+}
@@ -0,0 +1,103 @@
+// Per-stage record counter and sampled latency histogram
+package com.batch.etl;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StageMetrics implements StageMetricsMXBean {
+
+    private final String stage;
+    private final int sampleMask;
+    private final LongAdder records = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private volatile long startNanos = System.nanoTime();
+
+    // Every record is counted; on average one in sampleInterval (a power of two) is timed
+    public StageMetrics(String stage, int sampleInterval) {
+        if (Integer.bitCount(sampleInterval) != 1) {
+            throw new IllegalArgumentException("Sample interval must be a power of two: " + sampleInterval);
+        }
+        this.stage = stage;
+        this.sampleMask = sampleInterval - 1;
+    }
+
+    // Returns a start timestamp for sampled records, 0 otherwise
+    public long start() {
+        records.increment();
+        return (ThreadLocalRandom.current().nextInt() & sampleMask) == 0 ? System.nanoTime() : 0;
+    }
+
+    public void stop(long startTime) {
+        if (startTime != 0) {
+            latency.record(System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public String getStage() {
+        return stage;
+    }
+
+    @Override
+    public long getRecordCount() {
+        return records.sum();
+    }
+
+    @Override
+    public double getRecordsPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds <= 0 ? 0 : records.sum() / seconds;
+    }
+
+    @Override
+    public int getSampleInterval() {
+        return sampleMask + 1;
+    }
+
+    @Override
+    public long getSampledCount() {
+        return latency.count();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.mean() / 1000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.percentile(0.50) / 1000.0;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return latency.percentile(0.90) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.percentile(0.99) / 1000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latency.percentile(0.999) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.max() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        records.reset();
+        latency.reset();
+        startNanos = System.nanoTime();
+    }
+
+    public String format() {
+        return String.format("STAGE %-9s records=%d rate=%.0f/s p50=%.1fus p99=%.1fus max=%.1fus",
+            stage, getRecordCount(), getRecordsPerSecond(), getP50Micros(), getP99Micros(), getMaxMicros());
+    }
+}
@@ -0,0 +1,29 @@
+// JMX view of one pipeline stage
+package com.batch.etl;
+
+public interface StageMetricsMXBean {
+
+    String getStage();
+
+    long getRecordCount();
+
+    double getRecordsPerSecond();
+
+    int getSampleInterval();
+
+    long getSampledCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
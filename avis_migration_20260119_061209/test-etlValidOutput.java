@@ -0,0 +1,79 @@
+// Destination of a run's valid records - one file, or account shards plus a manifest
+package com.batch.etl;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.Locale;
+import java.util.function.Function;
+import com.batch.etl.model.DataModel.*;
+
+public interface ValidOutput extends RecordSink<OutputRecord>, Closeable {
+
+    // Fields the valid output can be sharded by; the manifest names the one in use. A key needs far more distinct
+    // values than shards, or most shards stay empty: transaction type, with three, was dropped for that reason.
+    enum ShardKey {
+        ACCOUNT(OutputRecord::accountNumber);
+
+        private final Function<OutputRecord, CharSequence> key;
+
+        ShardKey(Function<OutputRecord, CharSequence> key) {
+            this.key = key;
+        }
+
+        public static ShardKey of(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+
+        public String manifestName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // Called once every record was written; a sharded output publishes its manifest here
+    void complete() throws IOException;
+
+    // shardCount of 0 writes output itself; N > 0 writes N shards next to it, routed by shardKey
+    static ValidOutput open(Path output, int shardCount, ShardKey shardKey) throws IOException {
+        if (shardCount > 0) {
+            ShardedWriter<OutputRecord> shards = new ShardedWriter<>(output, shardCount, shardKey.manifestName(),
+                shardKey.key, OutputRecord::format);
+            return new ValidOutput() {
+                @Override
+                public void write(OutputRecord record) throws IOException {
+                    shards.write(record);
+                }
+
+                @Override
+                public void complete() throws IOException {
+                    shards.complete();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    shards.close();
+                }
+            };
+        }
+        // A manifest from an earlier sharded run would still vouch for its shards
+        String name = output.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        Files.deleteIfExists(output.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".manifest"));
+        BufferedWriter writer = Files.newBufferedWriter(output);
+        return new ValidOutput() {
+            @Override
+            public void write(OutputRecord record) throws IOException {
+                FileProcessor.writeRecord(writer, record.format());
+            }
+
+            @Override
+            public void complete() throws IOException {
+                writer.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                writer.close();
+            }
+        };
+    }
+}